@@ -0,0 +1,142 @@
+package puzzles.bench;
+
+import puzzles.common.solver.Configuration;
+import puzzles.hoppers.model.HoppersBoard;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * measures how well hoppers configs hash. for every puzzle file it collects the configs a
+ * bfs reaches and compares the zobrist hash code against the old hash code, the sum of the
+ * frogs' coordinate hash codes: how many configs share a hash code with another one, and how
+ * long a hash map lookup takes.
+ * <pre>
+ *     java puzzles.bench.HashBenchmark [-n maxConfigs] file...
+ * </pre>
+ * @author Jonathan Luo
+ */
+public class HashBenchmark {
+    /** amount of times every lookup is repeated, the first rounds warm up the jit */
+    private static final int ROUNDS = 7;
+
+    /**
+     * a config that hashes like the configs used to, the sum of the hash codes of the
+     * coordinates of its frogs
+     * @param config the config
+     */
+    private record LegacyKey(HoppersConfig config) {
+        @Override
+        public int hashCode() {
+            HoppersBoard board = config.getHoppersBoard();
+            int hash = 0;
+            for (int r = 0; r < board.getRow(); r++) {
+                for (int c = 0; c < board.getColumn(); c++) {
+                    char ch = config.getCell(r, c);
+                    if (ch == 'G' || ch == 'R') {
+                        hash += 31 * r + c;     // the hash code of a Coordinates record
+                    }
+                }
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * collect the configs a bfs reaches from a start
+     * @param start the starting config
+     * @param max the most configs to collect
+     * @return the configs in the order they were reached
+     */
+    private static List<HoppersConfig> reachable(HoppersConfig start, int max) {
+        Set<Configuration> seen = new HashSet<>();
+        List<HoppersConfig> configs = new ArrayList<>();
+        seen.add(start);
+        configs.add(start);
+        for (int i = 0; i < configs.size() && configs.size() < max; i++) {
+            for (Configuration nbr : configs.get(i).getNeighbors()) {
+                if (configs.size() < max && seen.add(nbr)) {
+                    configs.add((HoppersConfig) nbr);
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * get the share of keys whose hash code is also the hash code of another key
+     * @param keys the keys
+     * @return the collision rate from 0 to 1
+     */
+    private static double collisionRate(List<?> keys) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Object key : keys) {
+            counts.merge(key.hashCode(), 1, Integer::sum);
+        }
+        int colliding = 0;
+        for (int count : counts.values()) {
+            if (count > 1) {
+                colliding += count;
+            }
+        }
+        return keys.isEmpty() ? 0 : (double) colliding / keys.size();
+    }
+
+    /**
+     * time looking up every key in a hash map that holds all of them
+     * @param keys the keys
+     * @return the nanoseconds per lookup of the fastest round
+     */
+    private static <K> double lookupTime(List<K> keys) {
+        Map<K, K> map = new HashMap<>();
+        for (K key : keys) {
+            map.put(key, key);
+        }
+        double best = Double.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (K key : keys) {
+                if (map.containsKey(key)) {
+                    found++;
+                }
+            }
+            best = Math.min(best, (double) (System.nanoTime() - start) / keys.size());
+        }
+        if (found != ROUNDS * keys.size()) {
+            throw new IllegalStateException("lost a key");
+        }
+        return best;
+    }
+
+    /**
+     * run the benchmark on puzzle files
+     * @param args the puzzle files, optionally after -n and the most configs per file
+     * @throws IOException if a file can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        int max = 200_000;
+        int first = 0;
+        if (args.length >= 2 && args[0].equals("-n")) {
+            max = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length == first) {
+            System.out.println("Usage: java HashBenchmark [-n maxConfigs] file...");
+            return;
+        }
+        System.out.printf("%-30s %9s %12s %12s %12s %12s%n", "file", "configs",
+                "zobrist col", "legacy col", "zobrist ns", "legacy ns");
+        for (int i = first; i < args.length; i++) {
+            List<HoppersConfig> configs = reachable(new HoppersConfig(args[i]), max);
+            List<LegacyKey> legacy = new ArrayList<>();
+            for (HoppersConfig config : configs) {
+                legacy.add(new LegacyKey(config));
+            }
+            System.out.printf("%-30s %9d %11.4f%% %11.4f%% %12.1f %12.1f%n", args[i], configs.size(),
+                    100 * collisionRate(configs), 100 * collisionRate(legacy),
+                    lookupTime(configs), lookupTime(legacy));
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package puzzles.bench;
+
+import puzzles.common.CoalescingDispatcher;
+import puzzles.common.Coordinates;
+import puzzles.common.Observer;
+import puzzles.common.solver.Configuration;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.model.HoppersModel;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * measures the frame times of redrawing a hoppers board while a long sequence of moves is
+ * replayed on the model, without a screen. the board is drawn into an image with the tiles of
+ * the gui, one way like the gui used to, building the whole board again for every event, and
+ * one way like it does now, only drawing the spaces the model says changed, and one way with the
+ * drawing on a thread of its own behind a {@link CoalescingDispatcher}, only drawing the spaces
+ * that changed since the last drawing.
+ * a sequence is a reset followed by the clicks of a solution, repeated as often as asked, and
+ * a frame is one call on the model with the redraw of its event, for the async mode only the
+ * call on the model, which does not wait for the drawing.
+ * <pre>
+ *     java puzzles.bench.HoppersRenderBenchmark [-r rounds] [-w warmup rounds] [-m full,diff,async]
+ *                                               [-o file] [hoppers file or directory]...
+ * </pre>
+ * every mode and puzzle prints one line of json with the frame time percentiles, the spaces
+ * drawn per frame, how many times the board was drawn and whether the last drawing matches a
+ * board drawn from scratch.
+ * @author Jonathan Luo
+ */
+public class HoppersRenderBenchmark {
+    /** the size of a space in pixels, the same as the icons of the gui */
+    private static final int ICON_SIZE = 75;
+    /** where the tiles of the gui are on the class path */
+    private static final String RESOURCES_DIR = "/puzzles/hoppers/gui/resources/";
+
+    /** amount of times the sequence is replayed and timed */
+    private int rounds = 50;
+    /** amount of times the sequence is replayed before the timing */
+    private int warmups = 10;
+    /** the ways of redrawing to measure */
+    private List<String> modes = List.of("full", "diff", "async");
+    /** where the results are printed */
+    private PrintStream out = System.out;
+    /** the tiles of the red frog, green frog, lily pad and water */
+    private final Image[] tiles = new Image[4];
+
+    /**
+     * draws the board of the model into an image on every event, the way the gui shows it
+     */
+    private class Renderer implements Observer<HoppersModel, String> {
+        /** the way of drawing, full, diff or async */
+        private final String mode;
+        /** the drawn board */
+        private BufferedImage canvas;
+        /** the config that was drawn last */
+        private HoppersConfig shown;
+        /** amount of spaces drawn */
+        private long drawn;
+        /** amount of times the board was drawn */
+        private long draws;
+
+        /**
+         * create a renderer
+         * @param mode the way of drawing, full, diff or async
+         */
+        Renderer(String mode) {
+            this.mode = mode;
+        }
+
+        @Override
+        public void update(HoppersModel model, String msg) {
+            HoppersConfig config = model.getCurrentConfig();
+            // merged events only tell about the newest one, so the async way compares configs
+            List<Coordinates> changed = mode.equals("async") && shown != null ? config.changedCells(shown)
+                    : model.getChangedCells();
+            draws++;
+            shown = config;
+            if (mode.equals("full") || changed == null || canvas == null) {
+                canvas = draw(config);
+                drawn += (long) config.getRow() * config.getColumn();
+                return;
+            }
+            Graphics2D graphics = canvas.createGraphics();
+            for (Coordinates cell : changed) {
+                drawCell(graphics, config, cell.row(), cell.col());
+            }
+            graphics.dispose();
+            drawn += changed.size();
+        }
+    }
+
+    /**
+     * load a tile of the gui
+     * @param name file name of the tile
+     * @return the tile scaled to a space
+     * @throws IOException if the tile is not on the class path
+     */
+    private static Image tile(String name) throws IOException {
+        try (InputStream in = HoppersRenderBenchmark.class.getResourceAsStream(RESOURCES_DIR + name)) {
+            if (in == null) {
+                throw new IOException("missing " + RESOURCES_DIR + name);
+            }
+            BufferedImage image = ImageIO.read(in);
+            BufferedImage scaled = new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.drawImage(image, 0, 0, ICON_SIZE, ICON_SIZE, null);
+            graphics.dispose();
+            return scaled;
+        }
+    }
+
+    /**
+     * draw a space of a config
+     * @param graphics where to draw
+     * @param config the config
+     * @param r the row
+     * @param c the column
+     */
+    private void drawCell(Graphics2D graphics, HoppersConfig config, int r, int c) {
+        Image tile = switch (config.getCell(r, c)) {
+            case 'R' -> tiles[0];
+            case 'G' -> tiles[1];
+            case '.' -> tiles[2];
+            default -> tiles[3];
+        };
+        graphics.drawImage(tile, c * ICON_SIZE, r * ICON_SIZE, null);
+    }
+
+    /**
+     * draw a whole config on a new image
+     * @param config the config
+     * @return the image
+     */
+    private BufferedImage draw(HoppersConfig config) {
+        BufferedImage canvas = new BufferedImage(config.getColumn() * ICON_SIZE, config.getRow() * ICON_SIZE,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = canvas.createGraphics();
+        for (int r = 0; r < config.getRow(); r++) {
+            for (int c = 0; c < config.getColumn(); c++) {
+                drawCell(graphics, config, r, c);
+            }
+        }
+        graphics.dispose();
+        return canvas;
+    }
+
+    /**
+     * get the clicks of a solution, two per jump: the frog and where it lands
+     * @param path the solution path
+     * @return the clicks
+     */
+    private static List<Coordinates> clicks(List<Configuration> path) {
+        List<Coordinates> clicks = new ArrayList<>();
+        for (int i = 1; i < path.size(); i++) {
+            HoppersConfig before = (HoppersConfig) path.get(i - 1);
+            HoppersConfig after = (HoppersConfig) path.get(i);
+            List<Coordinates> changed = after.changedCells(before);
+            // the frog lands on the only changed space that has a frog afterwards, and the
+            // jumped frog is halfway between the other one and the landing
+            Coordinates landing = null;
+            for (Coordinates cell : changed) {
+                if (after.getCell(cell.row(), cell.col()) != '.') {
+                    landing = cell;
+                }
+            }
+            for (Coordinates cell : changed) {
+                for (Coordinates over : changed) {
+                    if (cell.row() + landing.row() == 2 * over.row() && cell.col() + landing.col() == 2 * over.col()
+                            && !over.equals(cell)) {
+                        clicks.add(cell);
+                    }
+                }
+            }
+            clicks.add(landing);
+        }
+        return clicks;
+    }
+
+    /**
+     * replay the sequence of a puzzle in every mode and print the results
+     * @param file the puzzle file
+     * @throws IOException if the puzzle can't be read
+     */
+    private void run(Path file) throws IOException, InterruptedException {
+        String name = file.getFileName().toString().replaceFirst("\\.txt$", "");
+        HoppersModel model = new HoppersModel(file.toString());
+        List<Coordinates> clicks = clicks(model.solve());
+        if (clicks.isEmpty()) {
+            System.err.println(name + ": no moves to replay");
+            return;
+        }
+        for (String mode : modes) {
+            // a model per mode, so the renderers don't draw for each other
+            HoppersModel replay = new HoppersModel(file.toString());
+            Renderer renderer = new Renderer(mode);
+            ExecutorService drawer = null;
+            CoalescingDispatcher<HoppersModel, String> dispatcher = null;
+            if (mode.equals("async")) {
+                drawer = Executors.newSingleThreadExecutor();
+                dispatcher = replay.addObserver(renderer, drawer);
+            } else {
+                replay.addObserver(renderer);
+            }
+            int frames = clicks.size() + 1;
+            long[] times = new long[rounds * frames];
+            for (int round = -warmups; round < rounds; round++) {
+                int frame = round * frames;
+                long begin = System.nanoTime();
+                replay.reset();
+                long end = System.nanoTime();
+                if (round >= 0) {
+                    times[frame] = end - begin;
+                }
+                for (Coordinates click : clicks) {
+                    frame++;
+                    begin = System.nanoTime();
+                    replay.select(click.row(), click.col());
+                    end = System.nanoTime();
+                    if (round >= 0) {
+                        times[frame] = end - begin;
+                    }
+                }
+            }
+            if (dispatcher != null) {
+                dispatcher.awaitIdle();
+                drawer.shutdown();
+            }
+            boolean match = Arrays.equals(pixels(renderer.canvas), pixels(draw(replay.getCurrentConfig())));
+            // the drawing of the warmup rounds is counted as well, the async way can't tell them apart
+            long published = (long) (warmups + rounds) * frames;
+            Arrays.sort(times);
+            double mean = Arrays.stream(times).average().orElse(0);
+            out.printf(Locale.ROOT, "{\"benchmark\":\"render-%s\",\"workload\":\"%s\",\"unit\":\"us/frame\","
+                            + "\"frames\":%d,\"mean\":%.2f,\"p50\":%.2f,\"p99\":%.2f,\"max\":%.2f,"
+                            + "\"cellsPerFrame\":%.1f,\"draws\":%d,\"match\":%b}%n",
+                    mode, name, times.length, mean / 1e3, percentile(times, 50) / 1e3, percentile(times, 99) / 1e3,
+                    times[times.length - 1] / 1e3, (double) renderer.drawn / published, renderer.draws, match);
+        }
+    }
+
+    /**
+     * get the pixels of an image
+     * @param image the image
+     * @return the pixels in row major order
+     */
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * get a percentile of sorted times
+     * @param sorted the times in ascending order
+     * @param percentile the percentile from 0 to 100
+     * @return the time
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    /**
+     * run the benchmark
+     * @param args the options and hoppers puzzles
+     * @throws IOException if a puzzle, a tile or the output file can't be opened
+     * @throws InterruptedException if interrupted while waiting for the drawing
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        HoppersRenderBenchmark bench = new HoppersRenderBenchmark();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-r" -> bench.rounds = Integer.parseInt(args[++i]);
+                case "-w" -> bench.warmups = Integer.parseInt(args[++i]);
+                case "-m" -> bench.modes = List.of(args[++i].split(","));
+                case "-o" -> bench.out = new PrintStream(args[++i]);
+                case "-h", "--help" -> {
+                    System.out.println("Usage: java HoppersRenderBenchmark [-r rounds] [-w warmup rounds] "
+                            + "[-m full,diff,async] [-o file] [hoppers file or directory]...");
+                    return;
+                }
+                default -> paths.add(args[i]);
+            }
+        }
+        if (bench.rounds < 1) {
+            throw new IllegalArgumentException("rounds must be at least 1");
+        }
+        String[] names = {"red_frog.png", "green_frog.png", "lily_pad.png", "water.png"};
+        for (int i = 0; i < names.length; i++) {
+            bench.tiles[i] = tile(names[i]);
+        }
+        for (String path : paths.isEmpty() ? List.of("data/hoppers") : paths) {
+            Path file = Path.of(path);
+            if (Files.isDirectory(file)) {
+                try (Stream<Path> listed = Files.list(file)) {
+                    for (Path puzzle : (Iterable<Path>) listed.filter(p -> p.toString().endsWith(".txt")).sorted()::iterator) {
+                        bench.run(puzzle);
+                    }
+                }
+            } else {
+                bench.run(file);
+            }
+        }
+        bench.out.flush();
+    }
+}
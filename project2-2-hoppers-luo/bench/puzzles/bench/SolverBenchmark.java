@@ -0,0 +1,255 @@
+package puzzles.bench;
+
+import puzzles.clock.ClockConfig;
+import puzzles.common.solver.*;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.strings.StringsConfig;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * benchmarks the configurations and the solver of every puzzle: generating neighbors,
+ * equals and hashCode, and whole solves. it works like a small jmh: every benchmark is run for
+ * a few warmup iterations that are thrown away and then for the measured iterations, and an
+ * iteration repeats the operation until it took long enough to time. it also counts the bytes
+ * the thread allocated, the way the gc profiler of jmh does.
+ * every result is printed as one line of json, so the results of two builds can be diffed.
+ * <pre>
+ *     java puzzles.bench.SolverBenchmark [-w warmups] [-i iterations] [-t millis]
+ *                                        [-b benchmark,...] [-o file] [hoppers file or directory]...
+ * </pre>
+ * the benchmarks are neighbors, equals and solve. without files the puzzles in data/hoppers
+ * are used. the clock and strings puzzles always come in the sizes of {@link #CLOCKS} and
+ * {@link #STRINGS}.
+ * @author Jonathan Luo
+ */
+public class SolverBenchmark {
+    /** the clock puzzles as hours, start and end */
+    private static final int[][] CLOCKS = {{12, 5, 11}, {100, 90, 30}, {1000, 42, 722}, {100_000, 1, 50_000}};
+    /** the strings puzzles as start and end, one per length */
+    private static final String[][] STRINGS = {{"AB", "XD"}, {"CAT", "DOG"}, {"WORD", "GAME"}};
+    /** the most configs the neighbors and equals benchmarks use per puzzle */
+    private static final int SAMPLE = 4096;
+
+    /** the results of the operations end up here, so the jit can't drop them */
+    private static volatile long sink;
+
+    /** amount of warmup iterations */
+    private int warmups = 3;
+    /** amount of measured iterations */
+    private int iterations = 5;
+    /** the shortest time an iteration runs for */
+    private long iterationNanos = 200_000_000L;
+    /** the benchmarks to run */
+    private Set<String> benchmarks = new LinkedHashSet<>(List.of("neighbors", "equals", "solve"));
+    /** where the results are printed */
+    private PrintStream out = System.out;
+
+    /**
+     * a puzzle to benchmark
+     * @param name name of the puzzle in the results
+     * @param start the starting configuration
+     */
+    private record Workload(String name, Configuration start) {
+    }
+
+    /**
+     * an operation that is timed, it returns a value so its work can't be optimized away
+     */
+    private interface Operation {
+        /**
+         * run the operation once
+         * @return any value that depends on the work
+         */
+        long run();
+    }
+
+    /**
+     * get the bytes the current thread allocated so far
+     * @return the bytes, -1 if the jvm does not count them
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * run a benchmark and print its result
+     * @param benchmark name of the benchmark
+     * @param workload name of the puzzle
+     * @param opsPerRun amount of operations one run does
+     * @param operation the operation
+     * @param expanded amount of nodes a solve expands, 0 if the operation is not a solve
+     */
+    private void measure(String benchmark, String workload, int opsPerRun, Operation operation, long expanded) {
+        double[] scores = new double[iterations];
+        long allocated = 0;
+        long ops = 0;
+        for (int i = -warmups; i < iterations; i++) {
+            long runs = 0;
+            long bytes = allocatedBytes();
+            long begin = System.nanoTime();
+            long elapsed;
+            do {
+                sink += operation.run();
+                runs++;
+                elapsed = System.nanoTime() - begin;
+            } while (elapsed < iterationNanos);
+            bytes = allocatedBytes() - bytes;
+            if (i >= 0) {
+                scores[i] = (double) elapsed / (runs * opsPerRun);
+                allocated += bytes;
+                ops += runs * opsPerRun;
+            }
+        }
+        double mean = Arrays.stream(scores).average().orElse(0);
+        double variance = Arrays.stream(scores).map(score -> (score - mean) * (score - mean)).sum()
+                / Math.max(1, iterations - 1);
+        double allocPerOp = allocatedBytes() < 0 ? -1 : (double) allocated / ops;
+        String perNode = expanded == 0 ? "" : String.format(Locale.ROOT,
+                ",\"expanded\":%d,\"allocBytesPerNode\":%.1f", expanded, allocPerOp / expanded);
+        out.printf(Locale.ROOT, "{\"benchmark\":\"%s\",\"workload\":\"%s\",\"unit\":\"ns/op\",\"score\":%.3f,"
+                        + "\"error\":%.3f,\"iterations\":%d,\"ops\":%d,\"allocBytesPerOp\":%.1f%s}%n",
+                benchmark, workload, mean, Math.sqrt(variance), iterations, ops, allocPerOp, perNode);
+    }
+
+    /**
+     * collect the configurations a bfs reaches first from a start
+     * @param start the starting configuration
+     * @return at most {@link #SAMPLE} configurations in the order they were reached
+     */
+    private static List<Configuration> sample(Configuration start) {
+        Set<Configuration> seen = new HashSet<>();
+        List<Configuration> configs = new ArrayList<>();
+        seen.add(start);
+        configs.add(start);
+        for (int i = 0; i < configs.size() && configs.size() < SAMPLE; i++) {
+            for (Configuration nbr : configs.get(i).getNeighbors()) {
+                if (configs.size() < SAMPLE && seen.add(nbr)) {
+                    configs.add(nbr);
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * run the benchmarks on a puzzle
+     * @param workload the puzzle
+     */
+    private void run(Workload workload) {
+        if (benchmarks.contains("neighbors")) {
+            List<Configuration> configs = sample(workload.start());
+            measure("neighbors", workload.name(), configs.size(), () -> {
+                long sum = 0;
+                for (Configuration config : configs) {
+                    sum += config.getNeighbors().size();
+                }
+                return sum;
+            }, 0);
+        }
+        if (benchmarks.contains("equals")) {
+            // the same configurations twice, as different objects
+            List<Configuration> configs = sample(workload.start());
+            List<Configuration> copies = sample(workload.start());
+            measure("equals", workload.name(), configs.size(), () -> {
+                long sum = 0;
+                for (int i = 0; i < configs.size(); i++) {
+                    Configuration config = configs.get(i);
+                    sum += config.hashCode();
+                    if (config.equals(copies.get(i))) {
+                        sum++;
+                    }
+                }
+                return sum;
+            }, 0);
+        }
+        if (benchmarks.contains("solve")) {
+            // count the expanded nodes once, outside of the timing
+            long[] expanded = new long[1];
+            new Solver(workload.start(), new SolverOptions().addListener(new SolverListener() {
+                @Override
+                public void solveFinished(SolverStats stats) {
+                    expanded[0] = stats.getExpanded();
+                }
+            }));
+            measure("solve", workload.name(), 1, () -> new Solver(workload.start()).getUnique(), expanded[0]);
+        }
+    }
+
+    /**
+     * get the hoppers puzzles of the arguments
+     * @param paths puzzle files or directories of puzzle files
+     * @return the puzzles
+     * @throws IOException if a file can't be read
+     */
+    private static List<Workload> hoppers(List<String> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String path : paths) {
+            Path file = Path.of(path);
+            if (Files.isDirectory(file)) {
+                try (Stream<Path> listed = Files.list(file)) {
+                    listed.filter(p -> p.toString().endsWith(".txt")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(file);
+            }
+        }
+        List<Workload> workloads = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString().replaceFirst("\\.txt$", "");
+            workloads.add(new Workload(name, new HoppersConfig(file.toString())));
+        }
+        return workloads;
+    }
+
+    /**
+     * run the benchmarks
+     * @param args the options and hoppers puzzles
+     * @throws IOException if a puzzle or the output file can't be opened
+     */
+    public static void main(String[] args) throws IOException {
+        SolverBenchmark bench = new SolverBenchmark();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-w" -> bench.warmups = Integer.parseInt(args[++i]);
+                case "-i" -> bench.iterations = Integer.parseInt(args[++i]);
+                case "-t" -> bench.iterationNanos = Long.parseLong(args[++i]) * 1_000_000L;
+                case "-b" -> bench.benchmarks = new LinkedHashSet<>(List.of(args[++i].split(",")));
+                case "-o" -> bench.out = new PrintStream(args[++i]);
+                case "-h", "--help" -> {
+                    System.out.println("Usage: java SolverBenchmark [-w warmups] [-i iterations] [-t millis] "
+                            + "[-b neighbors,equals,solve] [-o file] [hoppers file or directory]...");
+                    return;
+                }
+                default -> paths.add(args[i]);
+            }
+        }
+        if (bench.iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1");
+        }
+        List<Workload> workloads = hoppers(paths.isEmpty() ? List.of("data/hoppers") : paths);
+        for (int[] clock : CLOCKS) {
+            workloads.add(new Workload("clock-" + clock[0] + "-" + clock[1] + "-" + clock[2],
+                    new ClockConfig(clock[0], clock[1], clock[2])));
+        }
+        for (String[] strings : STRINGS) {
+            workloads.add(new Workload("strings-" + strings[0] + "-" + strings[1],
+                    new StringsConfig(strings[0], strings[1])));
+        }
+        for (Workload workload : workloads) {
+            bench.run(workload);
+        }
+        bench.out.flush();
+    }
+}
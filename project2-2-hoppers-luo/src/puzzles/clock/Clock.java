@@ -1,14 +1,25 @@
 package puzzles.clock;
 
 import puzzles.common.solver.Configuration;
-import puzzles.common.solver.Solver;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.common.solver.SolverOptions;
 
 import java.util.List;
 
 public class Clock {
     public static void main(String[] args) {
-        if (args.length < 2) {
-            System.out.println(("Usage: java Clock hours stop end"));
+        String usage = "Usage: java Clock " + SolverOptions.USAGE + " hours stop end";
+        SolverOptions options;
+        try {
+            options = SolverOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(usage);
+            return;
+        }
+        args = options.getArgs().toArray(new String[0]);
+        if (args.length < 3) {
+            System.out.println(usage);
         } else {
             // get information from the program arguments
             int hours = Integer.parseInt(args[0]);
@@ -18,7 +29,7 @@ public class Clock {
             ClockConfig clockStart = new ClockConfig(hours,start,end);
             ClockConfig clockEnd = new ClockConfig(hours,end,end);
             // solve and create path
-            Solver solver = new Solver(clockStart);
+            PuzzleSolver solver = options.solve(clockStart);
             List<Configuration> path = solver.constructPath(clockStart,clockEnd);
             // print out the results and steps
             System.out.println("Hours: " + hours + ", Start: " + start + ", End: " + end);
@@ -33,6 +44,7 @@ public class Clock {
                     System.out.println("Step " + i + ": " + path.get(i));
                 }
             }
+            options.printCount(clockStart);
         }
     }
 }
@@ -90,6 +90,34 @@ public class ClockConfig implements Configuration {
         return start + end + hours;
     }
 
+    /**
+     * a clock config can be packed into a long, the code is the current hour
+     * @return true if the hour is not negative
+     */
+    @Override
+    public boolean isEncodable() {
+        return start >= 0;
+    }
+
+    /**
+     * pack the config into a long
+     * @return the current hour
+     */
+    @Override
+    public long encode() {
+        return start;
+    }
+
+    /**
+     * unpack a code made by {@link #encode()}
+     * @param code the hour
+     * @return a clock config with the same hours and end
+     */
+    @Override
+    public Configuration decode(long code) {
+        return new ClockConfig(this, (int) code);
+    }
+
     /**
      * the string representation of the configuration
      * @return a string
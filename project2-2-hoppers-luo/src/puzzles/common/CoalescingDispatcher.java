@@ -0,0 +1,153 @@
+package puzzles.common;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BinaryOperator;
+
+/**
+ * delivers the events of a subject to an observer on an executor of its own, like the javafx
+ * thread, so a slow observer does not hold up the subject. while the observer is busy the
+ * events that come in are merged into one, by default the newest one wins, so the observer gets
+ * the latest state instead of every step in between.
+ * the ordering is kept: an observer gets at most one delivery at a time, its deliveries come in
+ * the order the events were published, and the last event published is always delivered.
+ * @param <Subject> the type of object the observer is observing
+ * @param <ClientData> the data of the events
+ * @author Jonathan Luo
+ */
+public class CoalescingDispatcher<Subject, ClientData> implements Observer<Subject, ClientData> {
+    /** the observer the events are delivered to */
+    private final Observer<Subject, ClientData> observer;
+    /** where the events are delivered */
+    private final Executor executor;
+    /** merges the data of an event that was not delivered yet with the data of a newer one */
+    private final BinaryOperator<ClientData> merge;
+    /** the subject of the newest event that was not delivered yet */
+    private Subject subject;
+    /** the merged data of the events that were not delivered yet */
+    private ClientData pending;
+    /** whether there are events that were not delivered yet */
+    private boolean hasPending;
+    /** whether a delivery is waiting on the executor or running */
+    private boolean scheduled;
+    /** amount of events published */
+    private long published;
+    /** amount of deliveries made */
+    private long delivered;
+
+    /**
+     * create a dispatcher where the newest event wins
+     * @param observer the observer the events are delivered to
+     * @param executor where the events are delivered
+     */
+    public CoalescingDispatcher(Observer<Subject, ClientData> observer, Executor executor) {
+        this(observer, executor, (older, newer) -> newer);
+    }
+
+    /**
+     * create a dispatcher
+     * @param observer the observer the events are delivered to
+     * @param executor where the events are delivered
+     * @param merge merges the data of an event that was not delivered yet with the data of a newer one
+     */
+    public CoalescingDispatcher(Observer<Subject, ClientData> observer, Executor executor,
+                                BinaryOperator<ClientData> merge) {
+        this.observer = observer;
+        this.executor = executor;
+        this.merge = merge;
+    }
+
+    /**
+     * take an event, it is delivered later on the executor
+     * @param subject the subject of the event
+     * @param data the data of the event
+     */
+    @Override
+    public void update(Subject subject, ClientData data) {
+        synchronized (this) {
+            published++;
+            this.pending = hasPending ? merge.apply(pending, data) : data;
+            this.subject = subject;
+            hasPending = true;
+            if (scheduled) {
+                // the delivery that is on its way picks it up
+                return;
+            }
+            scheduled = true;
+        }
+        schedule();
+    }
+
+    /**
+     * put a delivery on the executor
+     */
+    private void schedule() {
+        try {
+            executor.execute(this::deliver);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                scheduled = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * deliver the events that were merged so far. when more came in while the observer was
+     * busy another delivery is put on the executor, so the executor gets to run other work
+     * in between, like drawing on the javafx thread
+     */
+    private void deliver() {
+        Subject current;
+        ClientData data;
+        synchronized (this) {
+            current = subject;
+            data = pending;
+            subject = null;
+            pending = null;
+            hasPending = false;
+        }
+        try {
+            observer.update(current, data);
+        } finally {
+            boolean more;
+            synchronized (this) {
+                delivered++;
+                more = hasPending;
+                scheduled = more;
+                if (!more) {
+                    notifyAll();
+                }
+            }
+            if (more) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * wait until every event published so far has been delivered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (scheduled) {
+            wait();
+        }
+    }
+
+    /**
+     * get amount of events published to this dispatcher
+     * @return amount of events
+     */
+    public synchronized long getPublished() {
+        return published;
+    }
+
+    /**
+     * get amount of deliveries made, every delivery stands for one or more events
+     * @return amount of deliveries
+     */
+    public synchronized long getDelivered() {
+        return delivered;
+    }
+}
@@ -0,0 +1,287 @@
+package puzzles.common.solver;
+
+import java.util.*;
+
+/**
+ * an anytime search for puzzles too big to search through. it goes depth by depth like the bfs
+ * but only keeps the best few configurations of each depth, ranked by the {@link Scorer} of the
+ * options, so it may miss a solution but never remembers more than about the beam width times
+ * the depth times the branching. when a run ends without a solution and there is time left, the
+ * search starts over with a beam twice as wide. it stops at a solution, when the time budget is
+ * up, when a run remembers more states than {@link SolverOptions#getMaxStates()} allows, or when
+ * a run never had to drop a configuration, which proves there is no solution.
+ * when no solution is found the lowest scored configuration of every run is kept as the best
+ * partial path, see {@link #getBestPath()}, and every run is kept as a {@link Run} to show how
+ * close it got.
+ * @author Jonathan Luo
+ */
+public class BeamSearch implements PuzzleSolver {
+    /** ranks configurations by their score, the deeper first when the scores are the same */
+    private static final Comparator<Node> BEST_FIRST = Comparator.comparingDouble(Node::score)
+            .thenComparing(Comparator.comparingInt(Node::depth).reversed());
+
+    /** the starting configuration */
+    private final Configuration start;
+    /** the score of the start */
+    private final double startScore;
+    /** ranks the configurations */
+    private final Scorer scorer;
+    /** tells which configurations can't be solved, null to expand all of them */
+    private final Pruner pruner;
+    /** the options, for the limits of the search */
+    private final SolverOptions options;
+    /** when the time budget is up, in nanoseconds */
+    private final long deadline;
+    /** the runs so far */
+    private final List<Run> runs = new ArrayList<>();
+    /** the total configs generated */
+    private long total = 1;
+    /** amount of configs the last run remembered */
+    private int unique = 1;
+    /** the node of the solution, null if none was found */
+    private Node solution;
+    /** the lowest scored node of all runs */
+    private Node best;
+    /** whether the last run never dropped a configuration */
+    private boolean exhaustive;
+
+    /**
+     * a configuration of a beam and how it was reached
+     * @param config the configuration
+     * @param parent the node it was reached from, null for the start
+     * @param depth amount of moves from the start
+     * @param score the score of the configuration
+     */
+    private record Node(Configuration config, Node parent, int depth, double score) {
+    }
+
+    /**
+     * how a run of the beam search went
+     * @param width the beam width
+     * @param depth the deepest depth the beam reached
+     * @param bestDepth depth of the lowest scored configuration
+     * @param bestScore the lowest score
+     * @param generated amount of configs generated
+     * @param millis how long the run took
+     * @param end why the run ended: solved, exhausted, dropped, timeout or states
+     */
+    public record Run(int width, int depth, int bestDepth, double bestScore, long generated, long millis, String end) {
+        /**
+         * a summary of the run
+         * @return the numbers on one line
+         */
+        @Override
+        public String toString() {
+            if (end.equals("solved")) {
+                return String.format(Locale.ROOT, "width %d: solved at depth %d, %d generated, %d ms",
+                        width, depth, generated, millis);
+            }
+            return String.format(Locale.ROOT, "width %d: depth %d, best %.2f at depth %d, %d generated, %d ms, %s",
+                    width, depth, bestScore, bestDepth, generated, millis, end);
+        }
+    }
+
+    /**
+     * search with the default options, see {@link SolverOptions#getBeamWidth()}
+     * @param start the starting configuration
+     */
+    public BeamSearch(Configuration start) {
+        this(start, new SolverOptions().setBeamWidth(SolverOptions.DEFAULT_BEAM_WIDTH));
+    }
+
+    /**
+     * search with the beam width, time budget, scorer and limits of the options
+     * @param start the starting configuration
+     * @param options the solver options
+     */
+    public BeamSearch(Configuration start, SolverOptions options) {
+        this.start = start;
+        this.options = options;
+        this.scorer = options.getScorer() != null ? options.getScorer() : config -> 0;
+        this.pruner = options.getPruner();
+        this.deadline = System.nanoTime() + options.getBudgetNanos();
+        SolverStats stats = SolverStats.of(options);
+        this.startScore = start.isSolution() ? Double.NEGATIVE_INFINITY : scorer.score(start);
+        best = new Node(start, null, 0, startScore);
+        if (start.isSolution()) {
+            solution = best;
+        }
+        int width = Math.max(1, options.getBeamWidth());
+        while (solution == null) {
+            Run run = run(width, stats);
+            runs.add(run);
+            if (!run.end().equals("dropped")) {
+                break;
+            }
+            width = width > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : width * 2;
+        }
+        if (stats != null) {
+            stats.finish(unique, 0);
+        }
+    }
+
+    /**
+     * search once with a beam width
+     * @param width the beam width
+     * @param stats the stats of the solve, null if nobody listens
+     * @return how the run went
+     */
+    private Run run(int width, SolverStats stats) {
+        long begin = System.nanoTime();
+        long generated = 0;
+        Node runBest = new Node(start, null, 0, startScore);
+        Set<Configuration> seen = new HashSet<>();
+        seen.add(start);
+        List<Node> beam = List.of(runBest);
+        boolean dropped = false;
+        String end = null;
+        int depth = 0;
+        while (!beam.isEmpty() && end == null) {
+            // the worst of the kept ones on top, so it is the one to drop
+            PriorityQueue<Node> kept = new PriorityQueue<>(Math.min(width, 1 << 16), BEST_FIRST.reversed());
+            long layerGenerated = 0;
+            int added = 0;
+            for (Node node : beam) {
+                if (System.nanoTime() - deadline > 0) {
+                    end = "timeout";
+                    break;
+                }
+                options.checkLimits(0);
+                for (Configuration nbr : node.config().successors()) {
+                    layerGenerated++;
+                    if (!seen.add(nbr)) {
+                        continue;
+                    }
+                    added++;
+                    if (nbr.isSolution()) {
+                        solution = new Node(nbr, node, node.depth() + 1, Double.NEGATIVE_INFINITY);
+                        runBest = solution;
+                        depth = solution.depth();
+                        end = "solved";
+                        break;
+                    }
+                    if (pruner != null && pruner.isDead(nbr)) {
+                        continue;
+                    }
+                    Node child = new Node(nbr, node, node.depth() + 1, scorer.score(nbr));
+                    if (BEST_FIRST.compare(child, runBest) < 0) {
+                        runBest = child;
+                    }
+                    if (kept.size() < width) {
+                        kept.add(child);
+                    } else {
+                        dropped = true;
+                        if (BEST_FIRST.compare(child, kept.peek()) < 0) {
+                            kept.poll();
+                            kept.add(child);
+                        }
+                    }
+                }
+                if (end == null && seen.size() > options.getMaxStates()) {
+                    end = "states";
+                }
+                if (end != null) {
+                    break;
+                }
+            }
+            generated += layerGenerated;
+            if (stats != null) {
+                stats.expanded(beam.size(), layerGenerated, added, 0, 0);
+            }
+            if (end == null) {
+                // in score order, so the best ones are expanded first if the time runs out
+                List<Node> next = new ArrayList<>(kept);
+                next.sort(BEST_FIRST);
+                beam = next;
+                depth++;
+            }
+        }
+        total += generated;
+        unique = seen.size();
+        if (end == null) {
+            end = dropped ? "dropped" : "exhausted";
+        }
+        exhaustive = end.equals("exhausted");
+        if (BEST_FIRST.compare(runBest, best) < 0) {
+            best = runBest;
+        }
+        return new Run(width, depth, runBest.depth(), runBest.score(), generated,
+                (System.nanoTime() - begin) / 1_000_000, end);
+    }
+
+    /**
+     * get the path of the nodes up to a node
+     * @param node the node
+     * @return the configurations from the start to the node
+     */
+    private static List<Configuration> path(Node node) {
+        LinkedList<Configuration> path = new LinkedList<>();
+        for (Node step = node; step != null; step = step.parent()) {
+            path.addFirst(step.config());
+        }
+        return path;
+    }
+
+    /**
+     * get the solution after solving the configuration
+     * @return solution configuration, null if none was found
+     */
+    @Override
+    public Configuration getSolution() {
+        return solution == null ? null : solution.config();
+    }
+
+    /**
+     * construct the path of the solution
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return the configurations of the path, empty if no solution was found
+     */
+    @Override
+    public List<Configuration> constructPath(Configuration startNode, Configuration endNode) {
+        return solution == null || endNode == null || !endNode.equals(solution.config()) ? new LinkedList<>() : path(solution);
+    }
+
+    /**
+     * get the path to the solution, or to the lowest scored configuration of the runs if there is none
+     * @return the configurations from the start on
+     */
+    public List<Configuration> getBestPath() {
+        return path(solution != null ? solution : best);
+    }
+
+    /**
+     * checks if the last run looked at every configuration it reached, in which case a
+     * missing solution means there is none
+     * @return true if no configuration was dropped
+     */
+    public boolean isExhaustive() {
+        return exhaustive;
+    }
+
+    /**
+     * get the runs of the search, the width doubles from run to run
+     * @return the runs in the order they ran
+     */
+    public List<Run> getRuns() {
+        return runs;
+    }
+
+    /**
+     * get total configs generated by all runs
+     * @return the number of total configs
+     */
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * get the number of configs the last run remembered
+     * @return number of configs
+     */
+    @Override
+    public int getUnique() {
+        return unique;
+    }
+}
@@ -5,7 +5,84 @@ import java.util.Collection;
 public interface Configuration {
     boolean isSolution();
     Collection<Configuration> getNeighbors();
+
+    /**
+     * get the neighbors one at a time, in the same order as {@link #getNeighbors()}.
+     * a configuration can override this to build each neighbor only when the iteration
+     * gets to it, so a solver that stops early never builds the rest
+     * @return the neighbors, by default the collection of getNeighbors
+     */
+    default Iterable<Configuration> successors() {
+        return getNeighbors();
+    }
     boolean equals(Object other);
     int hashCode();
     String toString();
+
+    /**
+     * get the representative of all the configurations that are the same as this one up to
+     * a symmetry of the puzzle, like a rotation or a mirror of the board. symmetric
+     * configurations must have the same representative, and the representative must be a
+     * solution exactly when this configuration is
+     * @return the representative, this configuration if the puzzle has no symmetries
+     */
+    default Configuration canonical() {
+        return this;
+    }
+
+    /**
+     * checks if this configuration can be packed into a single long with {@link #encode()}.
+     * the solver then keeps its frontier as primitive longs
+     * @return true if encode and decode are supported
+     */
+    default boolean isEncodable() {
+        return false;
+    }
+
+    /**
+     * pack this configuration into a long, codes are never negative
+     * @return the code
+     */
+    default long encode() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be encoded");
+    }
+
+    /**
+     * unpack a code made by {@link #encode()} of a configuration of the same puzzle
+     * @param code the code
+     * @return the configuration
+     */
+    default Configuration decode(long code) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be decoded");
+    }
+
+    /**
+     * get amount of longs {@link #writeKey(long[], int)} writes. a key has to tell the
+     * configurations of one puzzle apart, and only has to be read back with
+     * {@link #readKey(long[], int)} by solvers that keep nothing but keys
+     * @return the key width, 0 if this configuration has no packed key
+     */
+    default int keyWidth() {
+        return isEncodable() ? 1 : 0;
+    }
+
+    /**
+     * write the packed key of this configuration, by default its code
+     * @param key array the key is written to
+     * @param offset index the key starts at
+     */
+    default void writeKey(long[] key, int offset) {
+        key[offset] = encode();
+    }
+
+    /**
+     * read a key made by {@link #writeKey(long[], int)} of a configuration of the same puzzle,
+     * by default by decoding it
+     * @param key array holding the key
+     * @param offset index the key starts at
+     * @return the configuration
+     */
+    default Configuration readKey(long[] key, int offset) {
+        return decode(key[offset]);
+    }
 }
@@ -0,0 +1,621 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * a bfs that keeps its layers on disk instead of in the heap, for puzzles with more states
+ * than fit in memory. every state is kept as its packed key, see {@link Configuration#writeKey},
+ * and each depth layer is a file of sorted keys in a scratch directory.
+ * duplicates are removed late: the children of a layer are collected in a buffer as big as the
+ * memory budget, which is sorted and written out as a run whenever it is full. the runs are then
+ * merged, and the merge drops the keys that are already in an earlier layer by walking a file
+ * of all the keys seen so far next to it. files are read through memory mappings.
+ * the path is found by a backward pass: starting at the solution, each earlier layer is scanned
+ * for a state that has the current one as a neighbor. the files are deleted as soon as they are
+ * not needed: right after the search if there is no solution, else once the path is constructed,
+ * or when the solver is garbage collected if the path is never asked for.
+ */
+public class ExternalSolver implements PuzzleSolver {
+    /** deletes the files of the solvers that were dropped before constructing their path */
+    private static final Cleaner CLEANER = Cleaner.create();
+    /** bytes of a file that are mapped at once */
+    private static final int WINDOW = 1 << 24;
+    /** ranges of at most this many keys are sorted by insertion */
+    private static final int INSERTION_SORT = 16;
+
+    /** the total configs generated*/
+    private long total;
+    /** the number of unique configs */
+    private int unique;
+    /** amount of configs expanded */
+    private long expanded;
+    /** the starting configuration */
+    private final Configuration start;
+    /** whether configurations are replaced by their canonical representative */
+    private final boolean symmetry;
+    /** amount of longs in a key */
+    private final int width;
+    /** the buffer the children of a layer are collected in */
+    private final long[] buffer;
+    /** the directory the files of this search are in */
+    private final Path directory;
+    /** the files of the layers, the index is the depth */
+    private final List<Path> layers = new ArrayList<>();
+    /** amount of runs written so far, to name them */
+    private int runs;
+    /** the solution configuration*/
+    private Configuration solution;
+    /** the depth of the solution */
+    private int solutionDepth = -1;
+    /** the canonical path to the solution, null until it is constructed from the layers */
+    private List<Configuration> solutionPath;
+    /** deletes the files that are kept for the path, null if none are kept */
+    private Cleaner.Cleanable files;
+    /** the stats of the solve, null if nobody listens */
+    private final SolverStats stats;
+    /** the options, for the limits of the search */
+    private final SolverOptions options;
+    /** tells which configurations can't be solved, null to expand all of them */
+    private final Pruner pruner;
+
+    /**
+     * solve a configuration with a bfs on disk
+     * @param start the starting configuration, it must have a packed key that can be read back
+     * @param options the solver options, including the scratch directory and memory budget
+     * @throws IllegalArgumentException if the configuration has no packed key
+     * @throws UncheckedIOException if the files can't be written or read
+     */
+    public ExternalSolver(Configuration start, SolverOptions options) {
+        this.start = start;
+        this.symmetry = options.isSymmetry();
+        this.stats = SolverStats.of(options);
+        this.options = options;
+        this.pruner = options.getPruner();
+        this.width = start.keyWidth();
+        if (width == 0) {
+            throw new IllegalArgumentException(start.getClass().getSimpleName() + " has no packed key");
+        }
+        long longs = options.getMemory() / Long.BYTES;
+        this.buffer = new long[(int) Math.max(width, Math.min(longs, Integer.MAX_VALUE - 8) / width * width)];
+        Path directory = null;
+        boolean keep = false;
+        try {
+            Files.createDirectories(options.getScratch());
+            directory = Files.createTempDirectory(options.getScratch(), "bfs-");
+            this.directory = directory;
+            search();
+            // the layers are only read again to construct the path of a solution
+            keep = solution != null;
+            if (keep) {
+                Path kept = directory;
+                files = CLEANER.register(this, () -> deleteFiles(kept));
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        } finally {
+            if (!keep) {
+                deleteFiles(directory);
+            }
+        }
+        if (stats != null) {
+            // the visited states are a key each in the visited file on disk
+            stats.finish(unique, (long) unique * width * Long.BYTES);
+        }
+    }
+
+    /**
+     * the configuration the visited states are kept as
+     * @param config a configuration
+     * @return its canonical representative if symmetric configurations count as one, else itself
+     */
+    private Configuration key(Configuration config) {
+        return symmetry ? config.canonical() : config;
+    }
+
+    /**
+     * bfs one layer at a time, each layer is read from its file while the next one is written
+     * @throws IOException if a file can't be written or read
+     */
+    private void search() throws IOException {
+        long[] key = new long[width];
+        key(start).writeKey(key, 0);
+        Path visited = newFile("visited-0");
+        try (KeyWriter layer = new KeyWriter(newLayer(), width);
+             KeyWriter seen = new KeyWriter(visited, width)) {
+            layer.write(key, 0);
+            seen.write(key, 0);
+        }
+        total = 1;
+        unique = 1;
+        if (key(start).isSolution()) {
+            solution = key(start);
+            solutionDepth = 0;
+            Files.delete(visited);
+            return;
+        }
+        int frontier = 1;
+        for (int depth = 0; ; depth++) {
+            if (stats != null) {
+                stats.layer(frontier, unique);
+            }
+            long expandedBefore = expanded;
+            long generated = total;
+            List<Path> children = expand(depth);
+            boolean done = solution != null || children.isEmpty();
+            if (done) {
+                for (Path run : children) {
+                    Files.delete(run);
+                }
+                Files.delete(visited);
+            } else {
+                frontier = unique;
+                visited = merge(children, visited, depth + 1);
+                frontier = unique - frontier;
+            }
+            if (stats != null) {
+                // the children of the last layer are never merged, so none count as duplicates
+                long added = done ? total - generated : frontier;
+                stats.expanded(expanded - expandedBefore, total - generated, added, 0, 0);
+            }
+            if (done) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * read a layer and write the children of its states as sorted runs, stopping at the
+     * first child that is a solution
+     * @param depth the depth of the layer
+     * @return the runs
+     * @throws IOException if a file can't be written or read
+     */
+    private List<Path> expand(int depth) throws IOException {
+        List<Path> children = new ArrayList<>();
+        int size = 0;
+        try (KeyReader layer = new KeyReader(layers.get(depth), width)) {
+            while (layer.next()) {
+                Configuration current = start.readKey(layer.key(), 0);
+                expanded+=1;
+                for (Configuration nbr : current.successors()) {
+                    total+=1;
+                    if ((total & SolverOptions.CHECK_MASK) == 0) {
+                        options.checkLimits(unique);
+                    }
+                    nbr = key(nbr);
+                    // a solution can't have been seen before, the search would have stopped there
+                    if (nbr.isSolution()) {
+                        solution = nbr;
+                        solutionDepth = depth + 1;
+                        unique+=1;
+                        return children;
+                    }
+                    // a dead child is left out, so it is not expanded, but it is not remembered
+                    // either and is checked again each time it is generated
+                    if (pruner != null && pruner.isDead(nbr)) {
+                        continue;
+                    }
+                    if (size == buffer.length) {
+                        children.add(writeRun(size));
+                        size = 0;
+                    }
+                    nbr.writeKey(buffer, size);
+                    size += width;
+                }
+            }
+        }
+        if (size > 0) {
+            children.add(writeRun(size));
+        }
+        return children;
+    }
+
+    /**
+     * sort the buffer, drop its duplicates and write it to a new run
+     * @param size amount of longs in the buffer
+     * @return the run
+     * @throws IOException if the run can't be written
+     */
+    private Path writeRun(int size) throws IOException {
+        int count = size / width;
+        if (width == 1) {
+            Arrays.sort(buffer, 0, count);
+        } else {
+            sort(buffer, width, 0, count);
+        }
+        Path run = newFile("run-" + runs++);
+        try (KeyWriter writer = new KeyWriter(run, width)) {
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || compare(buffer, width, i - 1, i) != 0) {
+                    writer.write(buffer, i * width);
+                }
+            }
+        }
+        return run;
+    }
+
+    /**
+     * merge the runs of a layer into the next layer. keys that come up in several runs are
+     * written once and keys that are in the visited file are dropped, and the new keys are
+     * merged into a new visited file
+     * @param children the runs
+     * @param visited the file of the keys of every layer so far
+     * @param depth the depth of the new layer
+     * @return the new visited file
+     * @throws IOException if a file can't be written or read
+     */
+    private Path merge(List<Path> children, Path visited, int depth) throws IOException {
+        Path merged = newFile("visited-" + depth);
+        PriorityQueue<KeyReader> runs = new PriorityQueue<>((a, b) -> Arrays.compare(a.key(), b.key()));
+        long[] last = new long[width];
+        boolean first = true;
+        try (KeyReader seen = new KeyReader(visited, width);
+             KeyWriter layer = new KeyWriter(newLayer(), width);
+             KeyWriter all = new KeyWriter(merged, width)) {
+            for (Path run : children) {
+                KeyReader reader = new KeyReader(run, width);
+                if (reader.next()) {
+                    runs.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            boolean more = seen.next();
+            while (!runs.isEmpty()) {
+                KeyReader run = runs.remove();
+                long[] key = run.key();
+                if (first || !Arrays.equals(last, key)) {
+                    first = false;
+                    System.arraycopy(key, 0, last, 0, width);
+                    // copy the visited keys in front of this one, then see if it was visited
+                    while (more && Arrays.compare(seen.key(), key) < 0) {
+                        all.write(seen.key(), 0);
+                        more = seen.next();
+                    }
+                    if (!more || !Arrays.equals(seen.key(), key)) {
+                        layer.write(key, 0);
+                        all.write(key, 0);
+                        unique+=1;
+                    }
+                }
+                if (run.next()) {
+                    runs.add(run);
+                } else {
+                    run.close();
+                }
+            }
+            for (; more; more = seen.next()) {
+                all.write(seen.key(), 0);
+            }
+        } finally {
+            for (KeyReader run : runs) {
+                run.close();
+            }
+        }
+        for (Path run : children) {
+            Files.delete(run);
+        }
+        Files.delete(visited);
+        return merged;
+    }
+
+    /**
+     * delete the files of a search and its directory
+     * @param directory the directory of the search, null if it was never created
+     */
+    private static void deleteFiles(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException ignored) {
+            // a file that can't be deleted is left in the scratch directory
+        }
+    }
+
+    /**
+     * create the file of the next layer
+     * @return the file
+     */
+    private Path newLayer() {
+        Path layer = newFile("layer-" + layers.size());
+        layers.add(layer);
+        return layer;
+    }
+
+    /**
+     * get the path of a new file in the scratch directory
+     * @param name name of the file
+     * @return the path
+     */
+    private Path newFile(String name) {
+        return directory.resolve(name);
+    }
+
+    /**
+     * sort keys in place with a quicksort that swaps whole keys
+     * @param keys the keys one after another
+     * @param width amount of longs in a key
+     * @param from index of the first key
+     * @param to index after the last key
+     */
+    private static void sort(long[] keys, int width, int from, int to) {
+        long[] pivot = new long[width];
+        while (to - from > INSERTION_SORT) {
+            System.arraycopy(keys, ((from + to) >>> 1) * width, pivot, 0, width);
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (Arrays.compare(keys, i * width, (i + 1) * width, pivot, 0, width) < 0) {
+                    i++;
+                }
+                while (Arrays.compare(keys, j * width, (j + 1) * width, pivot, 0, width) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, width, i++, j--);
+                }
+            }
+            // recurse into the smaller side so the stack stays small
+            if (j + 1 - from < to - i) {
+                sort(keys, width, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, width, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(keys, width, j - 1, j) > 0; j--) {
+                swap(keys, width, j - 1, j);
+            }
+        }
+    }
+
+    /**
+     * compare two keys of the same array
+     * @param keys the keys one after another
+     * @param width amount of longs in a key
+     * @param a index of a key
+     * @param b index of another key
+     * @return negative, zero or positive as the first key is less than, equal or greater than the other
+     */
+    private static int compare(long[] keys, int width, int a, int b) {
+        return Arrays.compare(keys, a * width, (a + 1) * width, keys, b * width, (b + 1) * width);
+    }
+
+    /**
+     * swap two keys of the same array
+     * @param keys the keys one after another
+     * @param width amount of longs in a key
+     * @param a index of a key
+     * @param b index of another key
+     */
+    private static void swap(long[] keys, int width, int a, int b) {
+        for (int i = 0; i < width; i++) {
+            long tmp = keys[a * width + i];
+            keys[a * width + i] = keys[b * width + i];
+            keys[b * width + i] = tmp;
+        }
+    }
+
+    /**
+     * get the solution after solving the configuration
+     * @return solution configuration
+     */
+    @Override
+    public Configuration getSolution() {
+        return solution;
+    }
+
+    /**
+     * construct the path from the start to the solution by going back through the layer files,
+     * each step scans the layer in front for a state with the current state as a neighbor. the
+     * files are deleted after the first call, later calls reuse its path
+     * @param startNode the start configuration
+     * @param endNode the end configuration, the solution
+     * @return a list of configurations representing the path
+     */
+    @Override
+    public List<Configuration> constructPath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path = new LinkedList<>();
+        if (endNode == null || !key(endNode).equals(solution)) {
+            return path;
+        }
+        if (solutionPath == null) {
+            List<Configuration> built = new LinkedList<>();
+            Configuration current = solution;
+            built.add(current);
+            try {
+                for (int depth = solutionDepth - 1; depth >= 0; depth--) {
+                    current = parent(current, depth);
+                    built.add(0, current);
+                }
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            } finally {
+                files.clean();
+            }
+            solutionPath = built;
+        }
+        path.addAll(solutionPath);
+        if (symmetry) {
+            return Solver.unfold(startNode, path);
+        }
+        path.set(0, startNode);
+        return path;
+    }
+
+    /**
+     * find a state of a layer that has a configuration as a neighbor
+     * @param child the configuration
+     * @param depth the depth of the layer
+     * @return the state
+     * @throws IOException if the layer can't be read
+     */
+    private Configuration parent(Configuration child, int depth) throws IOException {
+        try (KeyReader layer = new KeyReader(layers.get(depth), width)) {
+            while (layer.next()) {
+                Configuration current = start.readKey(layer.key(), 0);
+                for (Configuration nbr : current.getNeighbors()) {
+                    if (key(nbr).equals(child)) {
+                        return current;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("no parent of " + child + " in layer " + depth);
+    }
+
+    /**
+     * get total configs generated
+     * @return the number of total configs
+     */
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * get the number of unique configs
+     * @return number of configs
+     */
+    @Override
+    public int getUnique() {
+        return unique;
+    }
+
+    /**
+     * writes keys to a file through a direct buffer
+     */
+    private static class KeyWriter implements AutoCloseable {
+        /** the file */
+        private final FileChannel channel;
+        /** amount of longs in a key */
+        private final int width;
+        /** the keys that are not written yet */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.nativeOrder());
+
+        /**
+         * create a new file
+         * @param file the file
+         * @param width amount of longs in a key
+         * @throws IOException if the file can't be created
+         */
+        KeyWriter(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.width = width;
+        }
+
+        /**
+         * add a key to the file
+         * @param key array holding the key
+         * @param offset index of the key's first long
+         * @throws IOException if the file can't be written
+         */
+        void write(long[] key, int offset) throws IOException {
+            if (buffer.remaining() < width * Long.BYTES) {
+                flush();
+            }
+            for (int i = 0; i < width; i++) {
+                buffer.putLong(key[offset + i]);
+            }
+        }
+
+        /**
+         * write the buffered keys
+         * @throws IOException if the file can't be written
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * reads the keys of a file in order, mapping a window of the file at a time
+     */
+    private static class KeyReader implements AutoCloseable {
+        /** the file */
+        private final FileChannel channel;
+        /** the current key */
+        private final long[] key;
+        /** bytes in a window, a whole number of keys */
+        private final long window;
+        /** where the next window starts */
+        private long position;
+        /** the keys of the mapped window */
+        private LongBuffer keys = LongBuffer.allocate(0);
+
+        /**
+         * open a file
+         * @param file the file
+         * @param width amount of longs in a key
+         * @throws IOException if the file can't be opened
+         */
+        KeyReader(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.key = new long[width];
+            this.window = (long) Math.max(1, WINDOW / (width * Long.BYTES)) * width * Long.BYTES;
+        }
+
+        /**
+         * move to the next key
+         * @return false if there are no more keys
+         * @throws IOException if the file can't be read
+         */
+        boolean next() throws IOException {
+            if (!keys.hasRemaining()) {
+                long size = Math.min(window, channel.size() - position);
+                if (size <= 0) {
+                    return false;
+                }
+                keys = channel.map(FileChannel.MapMode.READ_ONLY, position, size)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+                position += size;
+            }
+            keys.get(key);
+            return true;
+        }
+
+        /**
+         * get the current key
+         * @return the key, it is overwritten by the next call to {@link #next()}
+         */
+        long[] key() {
+            return key;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package puzzles.common.solver;
+
+import jdk.jfr.*;
+
+/**
+ * a listener that emits the stats of a solve as flight recorder events, one for every depth
+ * and one for the whole solve. an event is only built when a recording has it enabled.
+ */
+public class JfrSolverListener implements SolverListener {
+    @Override
+    public void depthFinished(SolverStats stats) {
+        DepthEvent event = new DepthEvent();
+        if (event.shouldCommit()) {
+            event.depth = stats.getDepth();
+            event.frontier = stats.getFrontier(stats.getDepth());
+            event.peakVisited = stats.getPeakVisited();
+            event.expanded = stats.getExpanded();
+            event.nodesPerSecond = stats.getNodesPerSecond();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void solveFinished(SolverStats stats) {
+        SolveEvent event = new SolveEvent();
+        if (event.shouldCommit()) {
+            event.depth = stats.getDepth();
+            event.expanded = stats.getExpanded();
+            event.generated = stats.getGenerated();
+            event.duplicateRatio = stats.getDuplicateRatio();
+            event.peakVisited = stats.getPeakVisited();
+            event.bytesPerState = stats.getBytesPerState();
+            event.neighborNanos = stats.getNeighborNanos();
+            event.lookupNanos = stats.getLookupNanos();
+            event.elapsedNanos = stats.getElapsedNanos();
+            event.nodesPerSecond = stats.getNodesPerSecond();
+            event.commit();
+        }
+    }
+
+    /**
+     * a depth of the search was expanded
+     */
+    @Name("puzzles.SolverDepth")
+    @Label("Solver Depth")
+    @Category({"Puzzles", "Solver"})
+    @StackTrace(false)
+    static class DepthEvent extends Event {
+        @Label("Depth")
+        int depth;
+        @Label("Frontier")
+        int frontier;
+        @Label("Peak Visited")
+        long peakVisited;
+        @Label("Expanded")
+        long expanded;
+        @Label("Nodes per Second")
+        double nodesPerSecond;
+    }
+
+    /**
+     * a solve is done
+     */
+    @Name("puzzles.SolverFinished")
+    @Label("Solver Finished")
+    @Category({"Puzzles", "Solver"})
+    @StackTrace(false)
+    static class SolveEvent extends Event {
+        @Label("Depth")
+        int depth;
+        @Label("Expanded")
+        long expanded;
+        @Label("Generated")
+        long generated;
+        @Label("Duplicate Ratio")
+        @Percentage
+        double duplicateRatio;
+        @Label("Peak Visited")
+        long peakVisited;
+        @Label("Bytes per State")
+        double bytesPerState;
+        @Label("Neighbor Time")
+        @Timespan
+        long neighborNanos;
+        @Label("Lookup Time")
+        @Timespan
+        long lookupNanos;
+        @Label("Elapsed")
+        @Timespan
+        long elapsedNanos;
+        @Label("Nodes per Second")
+        double nodesPerSecond;
+    }
+}
@@ -0,0 +1,166 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+
+/**
+ * a hash map from long to long with open addressing and linear probing, kept in a single
+ * long array of key value pairs. the solver uses it as its visited set and predecessor map
+ * for configurations that can be packed into a long, so a visited state costs 16 to 32 bytes
+ * instead of a map entry, a boxed node and two config objects.
+ * keys must not be negative, negative keys mark the empty slots.
+ */
+public class LongLongTable {
+    /** the key that marks an empty slot */
+    private static final long EMPTY = -1;
+    /** key value pairs, a key is at an even index and its value right behind it */
+    private long[] slots;
+    /** the slot count minus one, the slot count is always a power of two */
+    private int mask;
+    /** amount of keys in the table */
+    private int size;
+
+    /**
+     * create an empty table
+     */
+    public LongLongTable() {
+        this.slots = new long[2 * 1024];
+        this.mask = 1024 - 1;
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * get the value of a key
+     * @param key the key, not negative
+     * @return the value, -1 if the key is not in the table
+     */
+    public long get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long found = slots[2 * slot];
+            if (found == key) {
+                return slots[2 * slot + 1];
+            } else if (found == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * checks if a key is in the table
+     * @param key the key, not negative
+     * @return true if the key has a value
+     */
+    public boolean containsKey(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long found = slots[2 * slot];
+            if (found == key) {
+                return true;
+            } else if (found == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * put a key into the table if it is not there yet
+     * @param key the key, not negative
+     * @param value the value
+     * @return true if the key was added, false if it already had a value
+     */
+    public boolean putIfAbsent(long key, long value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("negative key " + key);
+        }
+        int slot = slot(key);
+        for (long found = slots[2 * slot]; found != EMPTY; found = slots[2 * slot]) {
+            if (found == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[2 * slot] = key;
+        slots[2 * slot + 1] = value;
+        // keep the table at most half full so the probe sequences stay short
+        if (++size > mask / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * put a key into the table, or lower its value if the new value is smaller
+     * @param key the key, not negative
+     * @param value the value
+     */
+    public void putMin(long key, long value) {
+        int slot = slot(key);
+        for (long found = slots[2 * slot]; found != EMPTY; found = slots[2 * slot]) {
+            if (found == key) {
+                slots[2 * slot + 1] = Math.min(slots[2 * slot + 1], value);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        putIfAbsent(key, value);
+    }
+
+    /**
+     * get amount of keys in the table
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * get the bytes the table takes
+     * @return bytes of the slot array
+     */
+    public long memory() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    /**
+     * the first slot a key probes
+     * @param key the key
+     * @return the slot
+     */
+    private int slot(long key) {
+        return (int) (mix(key) >>> 32) & mask;
+    }
+
+    /**
+     * scramble a long so every bit of it changes about half the bits of the result, this is the
+     * finalizer of SplitMix64. keys that only differ in a few bits, like codes of configs a jump
+     * apart, would otherwise crowd into runs of neighboring slots
+     * @param x the long
+     * @return the scrambled long, take the slot from its high bits
+     */
+    public static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * double the slot count and put all keys into their new slots
+     */
+    private void grow() {
+        if (mask + 1 >= 1 << 29) {
+            throw new IllegalStateException("table is full");
+        }
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = mask * 2 + 1;
+        Arrays.fill(slots, EMPTY);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != EMPTY) {
+                int slot = slot(old[i]);
+                while (slots[2 * slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[2 * slot] = old[i];
+                slots[2 * slot + 1] = old[i + 1];
+            }
+        }
+    }
+}
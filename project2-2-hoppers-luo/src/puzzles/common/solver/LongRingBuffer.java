@@ -0,0 +1,81 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * a first in first out queue of primitive longs, kept in a growable circular array.
+ * the solver uses it as its frontier for configurations that can be packed into a long,
+ * which takes 8 bytes per entry instead of a node and a config object.
+ */
+public class LongRingBuffer {
+    /** the elements, the length is always a power of two */
+    private long[] elements;
+    /** index of the first element */
+    private int head;
+    /** amount of elements in the queue */
+    private int size;
+
+    /**
+     * create an empty queue
+     */
+    public LongRingBuffer() {
+        this.elements = new long[16];
+    }
+
+    /**
+     * add an element to the back of the queue
+     * @param value the element
+     */
+    public void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * remove the element at the front of the queue
+     * @return the element
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public long remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * checks if the queue is empty
+     * @return true if there are no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * get amount of elements in the queue
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * double the capacity. the elements that wrapped around to the start of the array are
+     * moved behind the old end, so the queue stays contiguous from head on
+     */
+    private void grow() {
+        if (elements.length == 1 << 30) {
+            throw new IllegalStateException("queue is full");
+        }
+        long[] bigger = Arrays.copyOf(elements, elements.length * 2);
+        System.arraycopy(elements, 0, bigger, elements.length, head);
+        elements = bigger;
+    }
+}
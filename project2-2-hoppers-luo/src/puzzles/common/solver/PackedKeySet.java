@@ -0,0 +1,174 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+
+/**
+ * a hash set of keys that are all the same amount of longs wide, kept with open addressing
+ * and linear probing in one flat long array. it lets a solver remember millions of states
+ * for a few words each instead of a whole configuration object per state.
+ * every key also gets an id, the amount of keys that were added before it.
+ */
+public class PackedKeySet {
+    /** amount of longs in a key */
+    private final int width;
+    /** the keys, the key of a slot starts at slot times width */
+    private long[] keys;
+    /** bitset of the slots that hold a key */
+    private long[] used;
+    /** the id of the key in each slot */
+    private int[] ids;
+    /** the slot count minus one, the slot count is always a power of two */
+    private int mask;
+    /** amount of keys in the set */
+    private int size;
+
+    /**
+     * create an empty set
+     * @param width amount of longs in a key
+     */
+    public PackedKeySet(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("width must be at least 1");
+        }
+        this.width = width;
+        allocate(1024);
+    }
+
+    /**
+     * checks if a key is in the set
+     * @param key array holding the key
+     * @param offset index of the key's first long
+     * @return true if the key is in the set
+     */
+    public boolean contains(long[] key, int offset) {
+        return find(key, offset) >= 0;
+    }
+
+    /**
+     * get the id of a key
+     * @param key array holding the key
+     * @param offset index of the key's first long
+     * @return the id, -1 if the key is not in the set
+     */
+    public int indexOf(long[] key, int offset) {
+        int slot = find(key, offset);
+        return slot >= 0 ? ids[slot] : -1;
+    }
+
+    /**
+     * add a key to the set
+     * @param key array holding the key
+     * @param offset index of the key's first long
+     * @return true if the key was added, false if it was in the set already
+     */
+    public boolean add(long[] key, int offset) {
+        int slot = find(key, offset);
+        if (slot >= 0) {
+            return false;
+        }
+        insert(~slot, key, offset, size);
+        // keep the set at most half full so the probe sequences stay short
+        if (++size > mask / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * get the bytes the set takes
+     * @return bytes of the key, used and id arrays
+     */
+    public long memory() {
+        return (long) keys.length * Long.BYTES + (long) used.length * Long.BYTES + (long) ids.length * Integer.BYTES;
+    }
+
+    /**
+     * get amount of keys in the set
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * get amount of longs in a key
+     * @return the width
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * find the slot of a key
+     * @param key array holding the key
+     * @param offset index of the key's first long
+     * @return the slot of the key, or the complement of the empty slot it would go into
+     */
+    private int find(long[] key, int offset) {
+        for (int slot = slot(key, offset); ; slot = (slot + 1) & mask) {
+            if ((used[slot >>> 6] & (1L << slot)) == 0) {
+                return ~slot;
+            } else if (Arrays.equals(keys, slot * width, slot * width + width, key, offset, offset + width)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * put a key into an empty slot
+     * @param slot the slot
+     * @param key array holding the key
+     * @param offset index of the key's first long
+     * @param id the id of the key
+     */
+    private void insert(int slot, long[] key, int offset, int id) {
+        System.arraycopy(key, offset, keys, slot * width, width);
+        used[slot >>> 6] |= 1L << slot;
+        ids[slot] = id;
+    }
+
+    /**
+     * the first slot a key probes, each long is scrambled before it is combined so keys that
+     * differ in a few bits of one long still spread over the table
+     * @param key array holding the key
+     * @param offset index of the key's first long
+     * @return the slot
+     */
+    private int slot(long[] key, int offset) {
+        long hash = 0;
+        for (int i = offset; i < offset + width; i++) {
+            hash = hash * 0x9E3779B97F4A7C15L + LongLongTable.mix(key[i]);
+        }
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * make room for a given amount of slots
+     * @param slots the slot count, a power of two
+     */
+    private void allocate(int slots) {
+        if ((long) slots * width > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("set is full");
+        }
+        keys = new long[slots * width];
+        used = new long[Math.max(1, slots >>> 6)];
+        ids = new int[slots];
+        mask = slots - 1;
+    }
+
+    /**
+     * double the slot count and put all keys into their new slots
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldUsed = used;
+        int[] oldIds = ids;
+        int oldSlots = mask + 1;
+        allocate(oldSlots * 2);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            if ((oldUsed[slot >>> 6] & (1L << slot)) != 0) {
+                insert(~find(oldKeys, slot * width), oldKeys, slot * width, oldIds[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package puzzles.common.solver;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * a bfs that expands each depth layer in parallel on a fork join pool.
+ * it gives the same solution path and the same total and unique counts as {@link Solver}:
+ * every child of a layer claims its config with its rank, the position the sequential bfs
+ * would have generated it at, and only the lowest rank keeps it. the next layer is the kept
+ * children in rank order, which is exactly the order the sequential queue would hold them in.
+ * configurations that can be packed into a long are searched as their codes, with the
+ * visited states in a {@link StripedLongLongTable}.
+ */
+public class ParallelSolver implements PuzzleSolver {
+    /** the rank of no child, higher than every real rank */
+    private static final long NONE = Long.MAX_VALUE;
+    /** a layer is split into tasks of at most this many configs */
+    private static final int GRAIN = 64;
+
+    /** the total configs generated*/
+    private long total;
+    /** the predecessor map for bfs*/
+    private final Map<Configuration, Configuration> predecessors = new ConcurrentHashMap<>();
+    /** the predecessor map for bfs over the codes of encodable configurations, null otherwise */
+    private StripedLongLongTable encodedPredecessors;
+    /** the starting configuration */
+    private final Configuration start;
+    /** amount of threads */
+    private final int threads;
+    /** whether configurations are replaced by their canonical representative */
+    private final boolean symmetry;
+    /** the solution configuration*/
+    private Configuration solution;
+    /** the pool the layers are expanded on */
+    private final ForkJoinPool pool;
+    /** the stats of the solve, null if nobody listens */
+    private final SolverStats stats;
+    /** the options, for the limits of the search */
+    private final SolverOptions options;
+    /** tells which configurations can't be solved, null to expand all of them */
+    private final Pruner pruner;
+    /** set once the solving thread is interrupted, the workers then stop expanding */
+    private volatile boolean cancelled;
+
+    /**
+     * solve a configuration with a bfs that uses several threads
+     * @param start the starting configuration
+     * @param options the solver options, including amount of threads
+     */
+    public ParallelSolver(Configuration start, SolverOptions options) {
+        this.start = start;
+        this.threads = options.getThreads();
+        this.symmetry = options.isSymmetry();
+        this.pool = new ForkJoinPool(threads);
+        this.stats = SolverStats.of(options);
+        this.options = options;
+        this.pruner = options.getPruner();
+        total += 1;
+        try {
+            if (start.isEncodable()) {
+                searchEncoded();
+            } else {
+                search();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (stats != null) {
+            stats.finish(getUnique(), 0);
+        }
+    }
+
+    /**
+     * the bfs, one layer at a time
+     */
+    private void search() {
+        predecessors.put(key(start), key(start));
+        if (key(start).isSolution()) {
+            solution = key(start);
+            return;
+        }
+        Configuration[] layer = {key(start)};
+        while (layer.length > 0) {
+            Configuration[] nodes = layer;
+            options.checkLimits(predecessors.size());
+            if (stats != null) {
+                stats.layer(nodes.length, predecessors.size());
+            }
+            // the sequential bfs stops at the first new child that is a solution,
+            // so only the children up to its rank count
+            AtomicLong firstSolution = new AtomicLong(NONE);
+            Configuration[][] children = new Configuration[nodes.length][];
+            Map<Configuration, Long> claims = new ConcurrentHashMap<>();
+            forEachIndex(nodes.length, i -> {
+                children[i] = nodes[i].getNeighbors().toArray(new Configuration[0]);
+                for (int j = 0; j < children[i].length; j++) {
+                    children[i][j] = key(children[i][j]);
+                    // configs of earlier layers are already taken
+                    if (!predecessors.containsKey(children[i][j])) {
+                        claims.merge(children[i][j], rank(i, j), Math::min);
+                        if (children[i][j].isSolution()) {
+                            firstSolution.accumulateAndGet(rank(i, j), Math::min);
+                        }
+                    }
+                }
+            });
+            long last = firstSolution.get();
+
+            Configuration[][] kept = new Configuration[nodes.length][];
+            forEachIndex(nodes.length, i -> {
+                List<Configuration> won = new ArrayList<>();
+                for (int j = 0; j < children[i].length && rank(i, j) <= last; j++) {
+                    Long claim = claims.get(children[i][j]);
+                    if (claim != null && claim == rank(i, j)) {
+                        predecessors.put(children[i][j], nodes[i]);
+                        if (rank(i, j) == last || !isDead(children[i][j])) {
+                            won.add(children[i][j]);
+                        }
+                    }
+                }
+                kept[i] = won.toArray(new Configuration[0]);
+            });
+
+            List<Configuration> next = new ArrayList<>();
+            long generated = 0;
+            int expanded = last == NONE ? nodes.length : parent(last) + 1;
+            for (int i = 0; i < expanded; i++) {
+                generated += last == NONE || i < parent(last) ? children[i].length : child(last) + 1;
+                next.addAll(Arrays.asList(kept[i]));
+            }
+            total += generated;
+            if (stats != null) {
+                stats.expanded(expanded, generated, next.size(), 0, 0);
+            }
+            if (last != NONE) {
+                solution = children[parent(last)][child(last)];
+                break;
+            }
+            layer = next.toArray(new Configuration[0]);
+        }
+    }
+
+    /**
+     * the bfs over the codes of the configurations, one layer at a time
+     */
+    private void searchEncoded() {
+        encodedPredecessors = new StripedLongLongTable(threads);
+        long startCode = key(start).encode();
+        encodedPredecessors.putIfAbsent(startCode, startCode);
+        if (key(start).isSolution()) {
+            solution = key(start);
+            return;
+        }
+        long[] layer = {startCode};
+        while (layer.length > 0) {
+            long[] nodes = layer;
+            options.checkLimits(encodedPredecessors.size());
+            if (stats != null) {
+                stats.layer(nodes.length, encodedPredecessors.size());
+            }
+            // expand the whole layer at once, whatever comes after the first new child
+            // that is a solution only has higher ranks and is thrown away below
+            AtomicLong firstSolution = new AtomicLong(NONE);
+            long[][] children = new long[nodes.length][];
+            StripedLongLongTable claims = new StripedLongLongTable(threads);
+            forEachIndex(nodes.length, i -> {
+                Collection<Configuration> neighbors = start.decode(nodes[i]).getNeighbors();
+                children[i] = new long[neighbors.size()];
+                int j = 0;
+                for (Configuration nbr : neighbors) {
+                    nbr = key(nbr);
+                    long code = nbr.encode();
+                    children[i][j] = code;
+                    if (!encodedPredecessors.containsKey(code)) {
+                        claims.putMin(code, rank(i, j));
+                        if (nbr.isSolution()) {
+                            firstSolution.accumulateAndGet(rank(i, j), Math::min);
+                        }
+                    }
+                    j++;
+                }
+            });
+            long last = firstSolution.get();
+
+            long[][] kept = new long[nodes.length][];
+            forEachIndex(nodes.length, i -> {
+                long[] won = new long[children[i].length];
+                int count = 0;
+                for (int j = 0; j < children[i].length && rank(i, j) <= last; j++) {
+                    if (claims.get(children[i][j]) == rank(i, j)) {
+                        encodedPredecessors.putIfAbsent(children[i][j], nodes[i]);
+                        if (rank(i, j) == last || !isDead(start.decode(children[i][j]))) {
+                            won[count++] = children[i][j];
+                        }
+                    }
+                }
+                kept[i] = Arrays.copyOf(won, count);
+            });
+
+            int size = 0;
+            long generated = 0;
+            int expanded = last == NONE ? nodes.length : parent(last) + 1;
+            for (int i = 0; i < expanded; i++) {
+                generated += last == NONE || i < parent(last) ? children[i].length : child(last) + 1;
+                size += kept[i].length;
+            }
+            total += generated;
+            if (stats != null) {
+                stats.expanded(expanded, generated, size, 0, 0);
+            }
+            if (last != NONE) {
+                solution = start.decode(children[parent(last)][child(last)]);
+                break;
+            }
+            layer = new long[size];
+            size = 0;
+            for (long[] won : kept) {
+                System.arraycopy(won, 0, layer, size, won.length);
+                size += won.length;
+            }
+        }
+    }
+
+    /**
+     * checks if a configuration was proven to have no solution, so it does not have to be expanded
+     * @param config a configuration
+     * @return true if the pruner says it is dead
+     */
+    private boolean isDead(Configuration config) {
+        return pruner != null && pruner.isDead(config);
+    }
+
+    /**
+     * the configuration the visited states are kept as
+     * @param config a configuration
+     * @return its canonical representative if symmetric configurations count as one, else itself
+     */
+    private Configuration key(Configuration config) {
+        return symmetry ? config.canonical() : config;
+    }
+
+    /**
+     * the position the sequential bfs generates a child at
+     * @param parent index of the parent in its layer
+     * @param child index of the child among the parent's neighbors
+     * @return the rank, lower ranks were generated first
+     */
+    private static long rank(int parent, int child) {
+        return (long) parent << 32 | child;
+    }
+
+    /**
+     * get the parent of a rank
+     * @param rank the rank
+     * @return index of the parent in its layer
+     */
+    private static int parent(long rank) {
+        return (int) (rank >>> 32);
+    }
+
+    /**
+     * get the child of a rank
+     * @param rank the rank
+     * @return index of the child among the parent's neighbors
+     */
+    private static int child(long rank) {
+        return (int) rank;
+    }
+
+    /**
+     * run an action for every index from 0 up to n on the pool and wait until all are done.
+     * a timeout interrupts only the thread that waits, so when it is interrupted the workers
+     * are told to give up the rest of the layer
+     * @param n amount of indices
+     * @param action the action
+     * @throws CancellationException if the calling thread gets interrupted
+     */
+    private void forEachIndex(int n, IntConsumer action) {
+        ForkJoinTask<Void> layer = pool.submit(new Range(0, n, i -> {
+            if (cancelled) {
+                throw new CancellationException("the solve was interrupted");
+            }
+            action.accept(i);
+        }));
+        try {
+            layer.get();
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new CancellationException("the solve was interrupted");
+        } catch (ExecutionException e) {
+            // join throws what the worker threw, as it was thrown
+            layer.join();
+        }
+    }
+
+    /**
+     * a task that runs an action for a range of indices, splitting the range in half
+     * until it is small enough
+     */
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /** first index */
+        private final int from;
+        /** index after the last one */
+        private final int to;
+        /** the action for each index */
+        private final IntConsumer action;
+
+        /**
+         * create a task for a range
+         * @param from first index
+         * @param to index after the last one
+         * @param action the action for each index
+         */
+        Range(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(from, mid, action), new Range(mid, to, action));
+            }
+        }
+    }
+
+    /**
+     * get the solution after solving the configuration
+     * @return solution configuration
+     */
+    @Override
+    public Configuration getSolution() {
+        return solution;
+    }
+
+    /**
+     * construct the shortest path from predecessor map, played forward from the start
+     * when symmetric configurations count as one
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations representing the path
+     */
+    @Override
+    public List<Configuration> constructPath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path;
+        if (encodedPredecessors != null) {
+            path = constructEncodedPath(startNode, endNode);
+        } else {
+            path = constructObjectPath(startNode, endNode);
+        }
+        return symmetry && !path.isEmpty() ? Solver.unfold(startNode, path) : path;
+    }
+
+    /**
+     * construct the shortest path from the predecessor map of the configurations
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations representing the path
+     */
+    private List<Configuration> constructObjectPath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path = new LinkedList<>();
+        if (endNode != null && predecessors.containsKey(key(endNode))) {
+            startNode = key(startNode);
+            Configuration currNode = key(endNode);
+            while (!currNode.equals(startNode)) {
+                path.add(0, currNode);
+                currNode = predecessors.get(currNode);
+            }
+            path.add(0, startNode);
+        }
+        return path;
+    }
+
+    /**
+     * construct the shortest path from the predecessor map of the codes
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations representing the path
+     */
+    private List<Configuration> constructEncodedPath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path = new LinkedList<>();
+        if (endNode != null && endNode.isEncodable() && encodedPredecessors.containsKey(key(endNode).encode())) {
+            long startCode = key(startNode).encode();
+            long code = key(endNode).encode();
+            while (code != startCode) {
+                path.add(0, start.decode(code));
+                code = encodedPredecessors.get(code);
+            }
+            path.add(0, startNode);
+        }
+        return path;
+    }
+
+    /**
+     * get total configs generated
+     * @return the number of total configs
+     */
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * get the number of unique configs
+     * @return number of configs
+     */
+    @Override
+    public int getUnique() {
+        return encodedPredecessors != null ? encodedPredecessors.size() : predecessors.size();
+    }
+}
@@ -0,0 +1,17 @@
+package puzzles.common.solver;
+
+/**
+ * proves that configurations can't be solved, so a solver does not have to expand them,
+ * see {@link SolverOptions#setPruner(Pruner)}. a solver asks it about every new configuration
+ * that is not a solution before it is queued, and a dead one is still remembered as visited.
+ * a pruner must only say dead when it is sure, otherwise solutions get lost. the parallel
+ * solver asks from several threads at once.
+ */
+public interface Pruner {
+    /**
+     * checks if a configuration can't reach a solution
+     * @param config a configuration that is not a solution
+     * @return true if it is proven to have no solution
+     */
+    boolean isDead(Configuration config);
+}
@@ -0,0 +1,35 @@
+package puzzles.common.solver;
+
+import java.util.List;
+
+/**
+ * the results every solver gives, so the puzzle programs can print them
+ * the same way no matter which solver found them
+ */
+public interface PuzzleSolver {
+    /**
+     * get the solution after solving the configuration
+     * @return solution configuration, null if there is none
+     */
+    Configuration getSolution();
+
+    /**
+     * construct the path from the start to an end configuration
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return the configurations of the path, empty if the end was not reached
+     */
+    List<Configuration> constructPath(Configuration startNode, Configuration endNode);
+
+    /**
+     * get total configs generated
+     * @return the number of total configs
+     */
+    long getTotal();
+
+    /**
+     * get the number of unique configs
+     * @return number of configs
+     */
+    int getUnique();
+}
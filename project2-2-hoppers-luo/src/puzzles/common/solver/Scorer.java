@@ -0,0 +1,17 @@
+package puzzles.common.solver;
+
+/**
+ * ranks configurations for the beam search, see {@link SolverOptions#setScorer(Scorer)}.
+ * the beam keeps the configurations with the lowest scores at each depth, so a scorer should
+ * give lower scores to configurations that look closer to a solution. scores of configurations
+ * at different depths are compared as well, to pick the best partial path when no solution is
+ * found in time.
+ */
+public interface Scorer {
+    /**
+     * score a configuration
+     * @param config a configuration that is not a solution
+     * @return the score, lower is better
+     */
+    double score(Configuration config);
+}
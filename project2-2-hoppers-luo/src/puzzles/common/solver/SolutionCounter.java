@@ -0,0 +1,149 @@
+package puzzles.common.solver;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * counts the shortest solutions of a configuration without listing them. the search goes
+ * layer by layer like the bfs, but every configuration of a layer carries the amount of
+ * shortest paths that reach it, the sum of the amounts of its parents in the layer before.
+ * the amount of solutions is the sum over the solutions of the first layer that has any.
+ * in a hoppers puzzle every jump takes a frog off the board, so every solution is a shortest
+ * one and this counts all of them. two paths are different when their moves are, configurations
+ * are not merged by symmetry.
+ * the counts are kept as longs and only become big integers once they don't fit anymore.
+ * @author Jonathan Luo
+ */
+public class SolutionCounter {
+    /** amount of shortest solutions */
+    private final BigInteger count;
+    /** amount of moves of a shortest solution, -1 if there is none */
+    private final int length;
+    /** amount of configurations seen */
+    private final long unique;
+
+    /**
+     * the amount of paths reaching a configuration, a long until it overflows
+     */
+    private static final class Tally {
+        /** the amount while it fits in a long */
+        private long value;
+        /** the amount once it does not fit in a long, null before */
+        private BigInteger big;
+
+        /**
+         * create a tally
+         * @param value the amount to start with
+         */
+        Tally(long value) {
+            this.value = value;
+        }
+
+        /**
+         * add the amount of another tally to this one
+         * @param other the other tally
+         */
+        void add(Tally other) {
+            if (big == null && other.big == null) {
+                long sum = value + other.value;
+                // both are positive, so an overflow makes the sum negative
+                if (sum >= 0) {
+                    value = sum;
+                    return;
+                }
+            }
+            big = get().add(other.get());
+        }
+
+        /**
+         * get the amount
+         * @return the amount
+         */
+        BigInteger get() {
+            return big != null ? big : BigInteger.valueOf(value);
+        }
+    }
+
+    /**
+     * count the shortest solutions of a configuration
+     * @param start the starting configuration
+     */
+    public SolutionCounter(Configuration start) {
+        this(start, new SolverOptions());
+    }
+
+    /**
+     * count the shortest solutions of a configuration with the limits and the pruner of the options
+     * @param start the starting configuration
+     * @param options the solver options
+     * @throws StateLimitException if more configurations are seen than the options allow
+     */
+    public SolutionCounter(Configuration start, SolverOptions options) {
+        Pruner pruner = options.getPruner();
+        Set<Configuration> seen = new HashSet<>();
+        Map<Configuration, Tally> layer = new HashMap<>();
+        seen.add(start);
+        layer.put(start, new Tally(1));
+        long generated = 0;
+        BigInteger solutions = BigInteger.ZERO;
+        int shortest = -1;
+        for (int depth = 0; !layer.isEmpty(); depth++) {
+            Tally found = new Tally(0);
+            for (Map.Entry<Configuration, Tally> entry : layer.entrySet()) {
+                if (entry.getKey().isSolution()) {
+                    found.add(entry.getValue());
+                }
+            }
+            if (found.big != null || found.value > 0) {
+                solutions = found.get();
+                shortest = depth;
+                break;
+            }
+            Map<Configuration, Tally> next = new HashMap<>();
+            for (Map.Entry<Configuration, Tally> entry : layer.entrySet()) {
+                for (Configuration nbr : entry.getKey().successors()) {
+                    if ((++generated & SolverOptions.CHECK_MASK) == 0) {
+                        options.checkLimits(seen.size());
+                    }
+                    Tally paths = next.get(nbr);
+                    if (paths != null) {
+                        // another shortest way to a configuration of the next layer
+                        paths.add(entry.getValue());
+                    } else if (seen.add(nbr) && (nbr.isSolution() || pruner == null || !pruner.isDead(nbr))) {
+                        paths = new Tally(0);
+                        paths.add(entry.getValue());
+                        next.put(nbr, paths);
+                    }
+                }
+            }
+            layer = next;
+        }
+        this.count = solutions;
+        this.length = shortest;
+        this.unique = seen.size();
+    }
+
+    /**
+     * get amount of shortest solutions
+     * @return the amount, 0 if there is no solution
+     */
+    public BigInteger getCount() {
+        return count;
+    }
+
+    /**
+     * get amount of moves of a shortest solution
+     * @return amount of moves, -1 if there is no solution
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * get amount of configurations the count has seen
+     * @return amount of configurations
+     */
+    public long getUnique() {
+        return unique;
+    }
+}
@@ -0,0 +1,139 @@
+package puzzles.common.solver;
+
+import java.util.*;
+
+/**
+ * lists the solutions of a configuration of a given length one at a time, so they can be
+ * looked at without holding all of them. it is a depth first search along the moves that
+ * keeps the path it is on and the successors left to try at each depth, and a bounded cache
+ * of configurations that were found to have no solution in the moves that were left, so the
+ * memory does not grow with the amount of solutions. the length is usually the one of
+ * {@link SolutionCounter#getLength()}, then the solutions come out in the order of the
+ * successors and there are {@link SolutionCounter#getCount()} of them.
+ * @author Jonathan Luo
+ */
+public class SolutionIterator implements Iterator<List<Configuration>> {
+    /** the most dead configurations remembered by default */
+    public static final int CACHE_SIZE = 1 << 16;
+
+    /** amount of moves of the solutions */
+    private final int length;
+    /** tells which configurations can't be solved, null to expand all of them */
+    private final Pruner pruner;
+    /** the configurations of the path being searched, the start first */
+    private final List<Configuration> path = new ArrayList<>();
+    /** the successors left to try after each configuration of the path but the last */
+    private final Deque<Iterator<Configuration>> successors = new ArrayDeque<>();
+    /** amount of solutions found under each configuration of the path */
+    private final long[] found;
+    /** the configurations that have no solution in exactly a number of moves, least recently used first */
+    private final Map<Configuration, Integer> dead;
+    /** the next solution, null if it has to be searched */
+    private List<Configuration> next;
+
+    /**
+     * list the solutions of a length
+     * @param start the starting configuration
+     * @param length amount of moves of the solutions
+     */
+    public SolutionIterator(Configuration start, int length) {
+        this(start, length, new SolverOptions(), CACHE_SIZE);
+    }
+
+    /**
+     * list the solutions of a length with the pruner of the options
+     * @param start the starting configuration
+     * @param length amount of moves of the solutions
+     * @param options the solver options
+     * @param cacheSize the most dead configurations remembered
+     */
+    public SolutionIterator(Configuration start, int length, SolverOptions options, int cacheSize) {
+        this.length = length;
+        this.pruner = options.getPruner();
+        this.found = new long[Math.max(1, length + 1)];
+        this.dead = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Configuration, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        if (length >= 0) {
+            path.add(start);
+            if (length == 0) {
+                next = start.isSolution() ? List.of(start) : null;
+                path.clear();
+            } else {
+                successors.push(start.successors().iterator());
+            }
+        }
+    }
+
+    /**
+     * checks if there is another solution, searching for it if needed
+     * @return true if there is one
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = search();
+        }
+        return next != null;
+    }
+
+    /**
+     * get the next solution
+     * @return the configurations of the solution, the start first
+     * @throws NoSuchElementException if there are no more solutions
+     */
+    @Override
+    public List<Configuration> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Configuration> solution = next;
+        next = null;
+        return solution;
+    }
+
+    /**
+     * go on with the search until the next solution
+     * @return the solution, null if there are no more
+     */
+    private List<Configuration> search() {
+        while (!successors.isEmpty()) {
+            int depth = path.size();    // the depth of the successors on top
+            Iterator<Configuration> top = successors.peek();
+            if (!top.hasNext()) {
+                // every successor was tried, back up one move
+                successors.pop();
+                Configuration done = path.remove(depth - 1);
+                if (found[depth - 1] == 0) {
+                    dead.put(done, length - depth + 1);
+                } else if (depth > 1) {
+                    found[depth - 2] += found[depth - 1];
+                }
+                continue;
+            }
+            Configuration nbr = top.next();
+            if (depth == length) {
+                if (nbr.isSolution()) {
+                    found[depth - 1]++;
+                    List<Configuration> solution = new ArrayList<>(path);
+                    solution.add(nbr);
+                    return solution;
+                }
+                continue;
+            }
+            Integer deadFor = dead.get(nbr);
+            if (nbr.isSolution() || deadFor != null && deadFor == length - depth
+                    || pruner != null && pruner.isDead(nbr)) {
+                // a solution here is shorter than the length, and a dead one has none
+                continue;
+            }
+            path.add(nbr);
+            found[depth] = 0;
+            successors.push(nbr.successors().iterator());
+        }
+        return null;
+    }
+}
@@ -2,61 +2,427 @@ package puzzles.common.solver;
 
 import java.util.*;
 
-public class Solver {
+public class Solver implements PuzzleSolver {
     /** the total configs generated*/
-    private int total;
+    private long total;
     /** the predecessor map for bfs*/
     Map<Configuration ,Configuration> predecessors = new HashMap<>();
+    /** the predecessor map for bfs over the codes of encodable configurations, null otherwise */
+    private LongLongTable encodedPredecessors;
+    /** the starting configuration */
+    private final Configuration start;
+    /** whether configurations are replaced by their canonical representative */
+    private final boolean symmetry;
+    /** ids of the visited states by packed key when only moves are recorded */
+    private PackedKeySet visitedKeys;
+    /** ids of the visited states without a packed key when only moves are recorded */
+    private Map<Configuration, Integer> visitedIds;
+    /** the id of the parent of each visited state when only moves are recorded */
+    private int[] parents;
+    /** the index among its parent's neighbors of each visited state */
+    private char[] moves;
+    /** scratch array for packed keys */
+    private long[] key;
     /** the solution configuration*/
     private Configuration solution;
+    /** the stats of the solve, null if nobody listens */
+    private final SolverStats stats;
+    /** the options, for the limits of the search */
+    private final SolverOptions options;
+    /** tells which configurations can't be solved, null to expand all of them */
+    private final Pruner pruner;
 
     /**
      * the constructor of solver which is the bfs algorithm
      * @param start the starting configuration
      */
     public Solver(Configuration start){
-        List<Configuration> queue = new LinkedList<>();
-        queue.add(start);
-        predecessors.put(start,start);
+        this(start, new SolverOptions());
+    }
+
+    /**
+     * the bfs algorithm with options
+     * @param start the starting configuration
+     * @param options the solver options
+     */
+    public Solver(Configuration start, SolverOptions options){
+        this.start = start;
+        this.symmetry = options.isSymmetry();
+        this.stats = SolverStats.of(options);
+        this.options = options;
+        this.pruner = options.getPruner();
         total+=1;
-        while (!queue.isEmpty()) {
+        if (options.isRecordMoves()) {
+            searchMoves(key(start));
+        } else if (start.isEncodable()) {
+            searchEncoded(key(start));
+        } else {
+            predecessors.put(key(start), key(start));
+            search(key(start));
+        }
+        if (stats != null) {
+            stats.finish(getUnique(), visitedBytes());
+        }
+    }
+
+    /**
+     * get the bytes the visited states take
+     * @return the bytes, 0 if they are objects and can only be estimated from the heap
+     */
+    private long visitedBytes(){
+        if (parents != null) {
+            long ids = (long) parents.length * (Integer.BYTES + Character.BYTES);
+            return visitedKeys != null ? ids + visitedKeys.memory() : 0;
+        }
+        return encodedPredecessors != null ? encodedPredecessors.memory() : 0;
+    }
+
+    /**
+     * checks if a configuration was proven to have no solution, so it does not have to be expanded
+     * @param config a configuration that is not a solution
+     * @return true if the pruner says it is dead
+     */
+    private boolean isDead(Configuration config){
+        return pruner != null && pruner.isDead(config);
+    }
+
+    /**
+     * the configuration the visited states are kept as
+     * @param config a configuration
+     * @return its canonical representative if symmetric configurations count as one, else itself
+     */
+    private Configuration key(Configuration config){
+        return symmetry ? config.canonical() : config;
+    }
+
+    /**
+     * bfs with a queue of configurations. the neighbors are checked for the goal as they
+     * are generated, so the search stops a whole layer earlier than if the goal was only
+     * checked when it comes out of the queue
+     * @param start the starting configuration
+     */
+    private void search(Configuration start){
+        Queue<Configuration> queue = new ArrayDeque<>();
+        queue.add(start);
+        // amount of configs ever queued, the visited ones that were pruned are not
+        long queued = 1;
+        if (start.isSolution()) {
+            solution = start;
+        }
+        while (!queue.isEmpty() && solution == null) {
             // process next node at front of queue
-            Configuration current = queue.remove(0);
-            if (current.isSolution()) {
-                solution = current;
-                break;
+            Configuration current = queue.remove();
+            if (stats != null) {
+                stats.dequeue(queued);
             }
-            // loop over all neighbors of current
-            for (Configuration nbr : current.getNeighbors()) {
+            long begin = stats != null ? System.nanoTime() : 0;
+            long lookup = 0;
+            int generated = 0;
+            int added = 0;
+            // loop over all neighbors of current, they are built one at a time
+            for (Configuration nbr : current.successors()) {
+                total+=1;
+                generated++;
+                if ((total & SolverOptions.CHECK_MASK) == 0) {
+                    options.checkLimits(predecessors.size());
+                }
+                nbr = key(nbr);
+                // only the visited set counts as lookup time, canonicalizing and pruning don't
+                long found = stats != null ? System.nanoTime() : 0;
+                boolean unvisited = predecessors.putIfAbsent(nbr, current) == null;
+                if (stats != null) {
+                    lookup += System.nanoTime() - found;
+                }
+                // process unvisited neighbors
+                if(unvisited) {
+                    added++;
+                    if (nbr.isSolution()) {
+                        solution = nbr;
+                    } else if (!isDead(nbr)) {
+                        queue.add(nbr);
+                        queued++;
+                    }
+                }
+                if (solution != null) {
+                    break;
+                }
+            }
+            if (stats != null) {
+                stats.expanded(1, generated, added, System.nanoTime() - begin - lookup, lookup);
+            }
+        }
+    }
+
+    /**
+     * bfs over the long codes of the configurations, both the queue and the
+     * predecessor map only hold codes
+     * @param start the starting configuration, must be encodable
+     */
+    private void searchEncoded(Configuration start){
+        encodedPredecessors = new LongLongTable();
+        LongRingBuffer queue = new LongRingBuffer();
+        encodedPredecessors.putIfAbsent(start.encode(), start.encode());
+        queue.add(start.encode());
+        long queued = 1;
+        if (start.isSolution()) {
+            solution = start;
+        }
+        while (!queue.isEmpty() && solution == null) {
+            // process next node at front of queue
+            long code = queue.remove();
+            Configuration current = start.decode(code);
+            if (stats != null) {
+                stats.dequeue(queued);
+            }
+            long begin = stats != null ? System.nanoTime() : 0;
+            long lookup = 0;
+            int generated = 0;
+            int added = 0;
+            // loop over all neighbors of current, they are built one at a time
+            for (Configuration nbr : current.successors()) {
+                total+=1;
+                generated++;
+                if ((total & SolverOptions.CHECK_MASK) == 0) {
+                    options.checkLimits(encodedPredecessors.size());
+                }
+                nbr = key(nbr);
+                long nbrCode = nbr.encode();
+                long found = stats != null ? System.nanoTime() : 0;
+                boolean unvisited = encodedPredecessors.putIfAbsent(nbrCode, code);
+                if (stats != null) {
+                    lookup += System.nanoTime() - found;
+                }
+                // process unvisited neighbors
+                if(unvisited) {
+                    added++;
+                    if (nbr.isSolution()) {
+                        solution = nbr;
+                    } else if (!isDead(nbr)) {
+                        queue.add(nbrCode);
+                        queued++;
+                    }
+                }
+                if (solution != null) {
+                    break;
+                }
+            }
+            if (stats != null) {
+                stats.expanded(1, generated, added, System.nanoTime() - begin - lookup, lookup);
+            }
+        }
+    }
+
+    /**
+     * bfs that remembers each visited state only by an id, the id of its parent and the
+     * index of the move that reached it. states with a packed key are not kept at all
+     * @param start the starting configuration
+     */
+    private void searchMoves(Configuration start){
+        if (start.keyWidth() > 0) {
+            visitedKeys = new PackedKeySet(start.keyWidth());
+            key = new long[start.keyWidth()];
+        } else {
+            visitedIds = new HashMap<>();
+        }
+        parents = new int[1024];
+        moves = new char[1024];
+        Queue<Configuration> queue = new ArrayDeque<>();
+        LongRingBuffer ids = new LongRingBuffer();
+        queue.add(start);
+        ids.add(visit(start, -1, 0));
+        long queued = 1;
+        if (start.isSolution()) {
+            solution = start;
+        }
+        while (!queue.isEmpty() && solution == null) {
+            // process next node at front of queue
+            Configuration current = queue.remove();
+            int id = (int) ids.remove();
+            if (stats != null) {
+                stats.dequeue(queued);
+            }
+            long begin = stats != null ? System.nanoTime() : 0;
+            long lookup = 0;
+            int added = 0;
+            // loop over all neighbors of current, they are built one at a time
+            int move = 0;
+            for (Configuration nbr : current.successors()) {
                 total+=1;
+                if ((total & SolverOptions.CHECK_MASK) == 0) {
+                    options.checkLimits(visitedCount());
+                }
+                nbr = key(nbr);
+                long found = stats != null ? System.nanoTime() : 0;
+                int nbrId = visit(nbr, id, move++);
+                if (stats != null) {
+                    lookup += System.nanoTime() - found;
+                }
                 // process unvisited neighbors
-                if(!predecessors.containsKey(nbr)) {
-                    predecessors.put(nbr, current);
-                    queue.add(nbr);
+                if (nbrId != -1) {
+                    added++;
+                    if (nbr.isSolution()) {
+                        solution = nbr;
+                    } else if (!isDead(nbr)) {
+                        queue.add(nbr);
+                        ids.add(nbrId);
+                        queued++;
+                    }
                 }
+                if (solution != null) {
+                    break;
+                }
+            }
+            if (stats != null) {
+                stats.expanded(1, move, added, System.nanoTime() - begin - lookup, lookup);
+            }
+        }
+    }
+
+    /**
+     * give a state an id if it was not visited yet
+     * @param config the state
+     * @param parent id of the state it was reached from
+     * @param move index of the state among the parent's neighbors
+     * @return the new id, -1 if the state was visited already
+     */
+    private int visit(Configuration config, int parent, int move){
+        int id = visitedCount();
+        if (visitedKeys != null) {
+            config.writeKey(key, 0);
+            if (!visitedKeys.add(key, 0)) {
+                return -1;
+            }
+        } else if (visitedIds.putIfAbsent(config, id) != null) {
+            return -1;
+        }
+        if (move > Character.MAX_VALUE) {
+            throw new IllegalStateException("too many neighbors to record move " + move);
+        }
+        if (id == parents.length) {
+            parents = Arrays.copyOf(parents, id * 2);
+            moves = Arrays.copyOf(moves, id * 2);
+        }
+        parents[id] = parent;
+        moves[id] = (char) move;
+        return id;
+    }
+
+    /**
+     * get the id of a visited state
+     * @param config the state
+     * @return the id, -1 if it was not visited
+     */
+    private int visitedId(Configuration config){
+        if (visitedKeys != null) {
+            config.writeKey(key, 0);
+            return visitedKeys.indexOf(key, 0);
+        }
+        return visitedIds.getOrDefault(config, -1);
+    }
+
+    /**
+     * get amount of states visited when only moves are recorded
+     * @return amount of ids given out
+     */
+    private int visitedCount(){
+        return visitedKeys != null ? visitedKeys.size() : visitedIds.size();
+    }
+
+    /**
+     * construct the path to a state by following the parent ids back to the start and
+     * then playing the moves forward again from the start
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations representing the path
+     */
+    private List<Configuration> constructMovePath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path = new LinkedList<>();
+        int id = endNode == null ? -1 : visitedId(key(endNode));
+        if (id == -1) {
+            return path;
+        }
+        Deque<Integer> replay = new ArrayDeque<>();
+        for (; parents[id] != -1; id = parents[id]) {
+            replay.push((int) moves[id]);
+        }
+        Configuration current = key(start);
+        path.add(startNode);
+        for (int move : replay) {
+            Iterator<Configuration> nbrs = current.getNeighbors().iterator();
+            for (int skip = 0; skip < move; skip++) {
+                nbrs.next();
             }
+            current = key(nbrs.next());
+            path.add(current);
         }
+        return path;
     }
 
     /**
      * get the solution after solving the configuration
      * @return solution configuration
      */
+    @Override
     public Configuration getSolution() {
         return solution;
     }
 
     /**
-     * construct the shortest path from predecessor map
+     * construct the shortest path from predecessor map. when symmetric configurations
+     * count as one, the path is played forward again from the start so that every step
+     * is on the start's orientation of the board
      * @param startNode the start configuration
      * @param endNode the end configuration
      * @return a list of strings representing the path
      */
+    @Override
     public List<Configuration> constructPath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path;
+        if (parents != null) {
+            path = constructMovePath(startNode, endNode);
+        } else if (encodedPredecessors != null) {
+            path = constructEncodedPath(startNode, endNode);
+        } else {
+            path = constructObjectPath(startNode, endNode);
+        }
+        return symmetry && !path.isEmpty() ? unfold(startNode, path) : path;
+    }
+
+    /**
+     * play a path of canonical configurations forward from the start, at each step taking
+     * the neighbor whose representative is the next configuration of the path
+     * @param startNode the start configuration
+     * @param canonicalPath the path, its first configuration stands for the start
+     * @return the path on the start's orientation
+     */
+    public static List<Configuration> unfold(Configuration startNode, List<Configuration> canonicalPath) {
+        List<Configuration> path = new LinkedList<>();
+        Configuration current = startNode;
+        path.add(current);
+        for (Configuration next : canonicalPath.subList(1, canonicalPath.size())) {
+            for (Configuration nbr : current.getNeighbors()) {
+                if (nbr.canonical().equals(next)) {
+                    current = nbr;
+                    break;
+                }
+            }
+            path.add(current);
+        }
+        return path;
+    }
+
+    /**
+     * construct the shortest path from the predecessor map of the configurations
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations representing the path
+     */
+    private List<Configuration> constructObjectPath(Configuration startNode, Configuration endNode) {
         List<Configuration> path = new LinkedList<>();
-        if(predecessors.containsKey(endNode)) {
-            Configuration currNode = endNode;
-            while (currNode != startNode) {
+        if(endNode != null && predecessors.containsKey(key(endNode))) {
+            startNode = key(startNode);
+            Configuration currNode = key(endNode);
+            while (!currNode.equals(startNode)) {
                 path.add(0, currNode);
                 currNode = predecessors.get(currNode);
             }
@@ -65,11 +431,32 @@ public class Solver {
         return path;
     }
 
+    /**
+     * construct the shortest path from the predecessor map of the codes
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations representing the path
+     */
+    private List<Configuration> constructEncodedPath(Configuration startNode, Configuration endNode) {
+        List<Configuration> path = new LinkedList<>();
+        if(endNode != null && endNode.isEncodable() && encodedPredecessors.containsKey(key(endNode).encode())) {
+            long startCode = key(startNode).encode();
+            long code = key(endNode).encode();
+            while (code != startCode) {
+                path.add(0, start.decode(code));
+                code = encodedPredecessors.get(code);
+            }
+            path.add(0, startNode);
+        }
+        return path;
+    }
+
     /**
      * get total configs generated
      * @return the number of total configs
      */
-    public int getTotal(){
+    @Override
+    public long getTotal(){
         return total;
     }
 
@@ -77,5 +464,11 @@ public class Solver {
      * get the number of unique configs
      * @return number of configs
      */
-    public int getUnique(){return predecessors.size();}
+    @Override
+    public int getUnique(){
+        if (parents != null) {
+            return visitedCount();
+        }
+        return encodedPredecessors != null ? encodedPredecessors.size() : predecessors.size();
+    }
 }
@@ -0,0 +1,22 @@
+package puzzles.common.solver;
+
+/**
+ * gets told about the progress of a solve, see {@link SolverOptions#addListener(SolverListener)}.
+ * the listener is called on the thread that runs the solve, and the stats it gets are only
+ * valid during the call.
+ */
+public interface SolverListener {
+    /**
+     * a depth of the search was expanded
+     * @param stats the stats of the solve, {@link SolverStats#getDepth()} is the depth that is done
+     */
+    default void depthFinished(SolverStats stats) {
+    }
+
+    /**
+     * the solve is done
+     * @param stats the stats of the whole solve
+     */
+    default void solveFinished(SolverStats stats) {
+    }
+}
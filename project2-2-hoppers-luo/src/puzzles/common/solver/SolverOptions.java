@@ -0,0 +1,454 @@
+package puzzles.common.solver;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * the solver options the puzzle programs take on the command line, the
+ * options can come anywhere between the other arguments
+ * <pre>
+ *     -t, --threads n    solve with n threads, 1 by default
+ *     -s, --symmetry     treat rotated and mirrored configurations as the same
+ *     -m, --moves        only remember the move that reached each configuration and
+ *                        rebuild the path by playing the moves again (one thread only)
+ *     -e, --external     keep the layers of the search in files instead of in memory
+ *     --scratch dir      directory for the files of the external search, the temp directory by default
+ *     --memory mb        megabytes the external search may sort at once, 64 by default
+ *     --max-states n     give up when the search has to remember more than n states
+ *     --stats            print the stats of every depth and of the solve to standard error
+ *     --count            also count the shortest solutions, see {@link SolutionCounter}
+ *     --beam width       search with a beam of this width instead of searching everything,
+ *                        see {@link BeamSearch}
+ *     --budget seconds   the time the beam search may take, 10 by default
+ *     --jfr              emit the stats as flight recorder events
+ * </pre>
+ * a program can also accept flags of its own, which are only checked for being there.
+ * options the picked solver would ignore are refused: the beam search runs on one thread over
+ * the configurations as they are, the external search on one thread without move recording,
+ * and only the single threaded bfs records moves.
+ */
+public class SolverOptions {
+    /** the options as shown in a usage message */
+    public static final String USAGE = "[-t threads] [-s] [-m] [-e [--scratch dir] [--memory mb]] [--max-states n] [--stats] [--jfr] [--count] [--beam width [--budget seconds]]";
+    /** the solvers check their limits whenever the amount of generated configs has none of these bits set */
+    static final long CHECK_MASK = 0xFFF;
+    /** the beam width of a beam search when none is given */
+    public static final int DEFAULT_BEAM_WIDTH = 64;
+
+    /** amount of threads the solver may use */
+    private int threads = 1;
+    /** whether configurations are replaced by their canonical representative */
+    private boolean symmetry;
+    /** whether the solver records moves instead of predecessor configurations */
+    private boolean recordMoves;
+    /** whether the search keeps its layers on disk */
+    private boolean external;
+    /** directory for the files of the external search */
+    private Path scratch = Path.of(System.getProperty("java.io.tmpdir"));
+    /** bytes the external search may sort at once */
+    private long memory = 64L << 20;
+    /** the most states the search may remember */
+    private long maxStates = Long.MAX_VALUE;
+    /** tells which configurations can't be solved, null to expand all of them */
+    private Pruner pruner;
+    /** whether the shortest solutions are counted as well */
+    private boolean count;
+    /** the width of the beam search, 0 to search everything */
+    private int beamWidth;
+    /** the time the beam search may take */
+    private long budgetNanos = 10_000_000_000L;
+    /** ranks configurations for the beam search, null to keep them in the order they come */
+    private Scorer scorer;
+    /** the listeners that are told about the progress of the solve */
+    private final List<SolverListener> listeners = new ArrayList<>();
+    /** the arguments that are not options */
+    private final List<String> args = new ArrayList<>();
+    /** the program's own flags that were given */
+    private final Set<String> flags = new HashSet<>();
+
+    /**
+     * read the options out of the command line arguments
+     * @param args the command line arguments
+     * @param programFlags flags the program understands besides the solver options
+     * @return the options
+     * @throws IllegalArgumentException if an option is missing its value, the value is not valid
+     * or the options can't be used together
+     */
+    public static SolverOptions parse(String[] args, String... programFlags) {
+        SolverOptions options = new SolverOptions();
+        Set<String> known = Set.of(programFlags);
+        for (int i = 0; i < args.length; i++) {
+            if (known.contains(args[i])) {
+                options.flags.add(args[i]);
+                continue;
+            }
+            switch (args[i]) {
+                case "-t", "--threads" -> {
+                    options.threads = Integer.parseInt(value(args, ++i));
+                    if (options.threads < 1) {
+                        throw new IllegalArgumentException("threads must be at least 1");
+                    }
+                }
+                case "-s", "--symmetry" -> options.symmetry = true;
+                case "-m", "--moves" -> options.recordMoves = true;
+                case "-e", "--external" -> options.external = true;
+                case "--scratch" -> options.scratch = Path.of(value(args, ++i));
+                case "--stats" -> options.addListener(new SolverStatsPrinter(System.err));
+                case "--jfr" -> options.addListener(new JfrSolverListener());
+                case "--count" -> options.count = true;
+                case "--beam" -> {
+                    options.beamWidth = Integer.parseInt(value(args, ++i));
+                    if (options.beamWidth < 1) {
+                        throw new IllegalArgumentException("beam width must be at least 1");
+                    }
+                }
+                case "--budget" -> {
+                    options.budgetNanos = (long) (Double.parseDouble(value(args, ++i)) * 1e9);
+                    if (options.budgetNanos <= 0) {
+                        throw new IllegalArgumentException("budget must be more than 0 seconds");
+                    }
+                }
+                case "--memory" -> {
+                    options.memory = Long.parseLong(value(args, ++i)) << 20;
+                    if (options.memory <= 0) {
+                        throw new IllegalArgumentException("memory must be at least 1 mb");
+                    }
+                }
+                case "--max-states" -> {
+                    options.maxStates = Long.parseLong(value(args, ++i));
+                    if (options.maxStates < 1) {
+                        throw new IllegalArgumentException("max states must be at least 1");
+                    }
+                }
+                default -> options.args.add(args[i]);
+            }
+        }
+        // see solve(), each of these would be dropped without a word
+        if (options.beamWidth > 0 && (options.threads > 1 || options.symmetry || options.recordMoves || options.external)) {
+            throw new IllegalArgumentException("--beam can't be used with -t, -s, -m or -e");
+        }
+        if (options.external && (options.threads > 1 || options.recordMoves)) {
+            throw new IllegalArgumentException("-e can't be used with -t or -m");
+        }
+        if (options.recordMoves && options.threads > 1) {
+            throw new IllegalArgumentException("-m can't be used with -t");
+        }
+        return options;
+    }
+
+    /**
+     * get the value of an option
+     * @param args the command line arguments
+     * @param i index of the value
+     * @return the value
+     */
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        }
+        return args[i];
+    }
+
+    /**
+     * get the arguments that are not options
+     * @return the arguments in the order they were given
+     */
+    public List<String> getArgs() {
+        return args;
+    }
+
+    /**
+     * checks if one of the program's own flags was given
+     * @param flag the flag
+     * @return true if the flag was on the command line
+     */
+    public boolean isSet(String flag) {
+        return flags.contains(flag);
+    }
+
+    /**
+     * get amount of threads the solver may use
+     * @return amount of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * set amount of threads the solver may use
+     * @param threads amount of threads, at least 1
+     * @return these options
+     */
+    public SolverOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * checks if the solver searches over canonical configurations,
+     * see {@link Configuration#canonical()}
+     * @return true if symmetric configurations count as one
+     */
+    public boolean isSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * set whether the solver searches over canonical configurations
+     * @param symmetry true if symmetric configurations count as one
+     * @return these options
+     */
+    public SolverOptions setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+        return this;
+    }
+
+    /**
+     * checks if the shortest solutions are counted as well
+     * @return true if they are counted
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    /**
+     * set whether the shortest solutions are counted as well
+     * @param count true to count them
+     * @return these options
+     */
+    public SolverOptions setCount(boolean count) {
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * get the width of the beam search
+     * @return the width, 0 if everything is searched
+     */
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+
+    /**
+     * set the width the beam search starts with
+     * @param beamWidth the width, 0 to search everything
+     * @return these options
+     */
+    public SolverOptions setBeamWidth(int beamWidth) {
+        this.beamWidth = beamWidth;
+        return this;
+    }
+
+    /**
+     * get the time the beam search may take
+     * @return nanoseconds
+     */
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * set the time the beam search may take
+     * @param budgetNanos nanoseconds
+     * @return these options
+     */
+    public SolverOptions setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        return this;
+    }
+
+    /**
+     * get what ranks the configurations for the beam search
+     * @return the scorer, null if the configurations are kept in the order they come
+     */
+    public Scorer getScorer() {
+        return scorer;
+    }
+
+    /**
+     * set what ranks the configurations for the beam search
+     * @param scorer the scorer, null to keep the configurations in the order they come
+     * @return these options
+     */
+    public SolverOptions setScorer(Scorer scorer) {
+        this.scorer = scorer;
+        return this;
+    }
+
+    /**
+     * print the amount of shortest solutions of a configuration if they are counted
+     * @param start the starting configuration
+     */
+    public void printCount(Configuration start) {
+        if (count) {
+            SolutionCounter counter = new SolutionCounter(start, this);
+            System.out.println("Solutions: " + counter.getCount());
+        }
+    }
+
+    /**
+     * checks if the solver records moves instead of predecessor configurations
+     * @return true if only moves are recorded
+     */
+    public boolean isRecordMoves() {
+        return recordMoves;
+    }
+
+    /**
+     * set whether the solver records moves instead of predecessor configurations
+     * @param recordMoves true if only moves are recorded
+     * @return these options
+     */
+    public SolverOptions setRecordMoves(boolean recordMoves) {
+        this.recordMoves = recordMoves;
+        return this;
+    }
+
+    /**
+     * checks if the search keeps its layers on disk, see {@link ExternalSolver}
+     * @return true if the layers are kept in files
+     */
+    public boolean isExternal() {
+        return external;
+    }
+
+    /**
+     * set whether the search keeps its layers on disk
+     * @param external true if the layers are kept in files
+     * @return these options
+     */
+    public SolverOptions setExternal(boolean external) {
+        this.external = external;
+        return this;
+    }
+
+    /**
+     * get the directory for the files of the external search
+     * @return the directory
+     */
+    public Path getScratch() {
+        return scratch;
+    }
+
+    /**
+     * set the directory for the files of the external search, it has to be on a local disk
+     * @param scratch the directory
+     * @return these options
+     */
+    public SolverOptions setScratch(Path scratch) {
+        this.scratch = scratch;
+        return this;
+    }
+
+    /**
+     * get amount of bytes the external search may sort at once
+     * @return the memory budget in bytes
+     */
+    public long getMemory() {
+        return memory;
+    }
+
+    /**
+     * set amount of bytes the external search may sort at once
+     * @param memory the memory budget in bytes
+     * @return these options
+     */
+    public SolverOptions setMemory(long memory) {
+        this.memory = memory;
+        return this;
+    }
+
+    /**
+     * get the most states the search may remember
+     * @return amount of states, Long.MAX_VALUE if there is no limit
+     */
+    public long getMaxStates() {
+        return maxStates;
+    }
+
+    /**
+     * set the most states the search may remember, a solver that needs more throws a
+     * {@link StateLimitException}. it keeps a search that can't be solved from filling the heap
+     * @param maxStates amount of states
+     * @return these options
+     */
+    public SolverOptions setMaxStates(long maxStates) {
+        this.maxStates = maxStates;
+        return this;
+    }
+
+    /**
+     * stop a search that was interrupted or remembers more states than it may. the solvers
+     * call this every few thousand generated configs, so interrupting the thread of a solve
+     * cancels it
+     * @param visited amount of states the search remembers
+     * @throws CancellationException if the thread was interrupted
+     * @throws StateLimitException if the search remembers more than {@link #getMaxStates()} states
+     */
+    void checkLimits(long visited) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("the solve was interrupted");
+        }
+        if (visited > maxStates) {
+            throw new StateLimitException(maxStates);
+        }
+    }
+
+    /**
+     * get what tells the solver which configurations can't be solved
+     * @return the pruner, null if every configuration is expanded
+     */
+    public Pruner getPruner() {
+        return pruner;
+    }
+
+    /**
+     * set what tells the solver which configurations can't be solved, they are not expanded
+     * @param pruner the pruner, null to expand every configuration
+     * @return these options
+     */
+    public SolverOptions setPruner(Pruner pruner) {
+        this.pruner = pruner;
+        return this;
+    }
+
+    /**
+     * get the listeners that are told about the progress of the solve
+     * @return the listeners, empty if the solver does not have to keep stats
+     */
+    public List<SolverListener> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * add a listener that is told about the progress of the solve
+     * @param listener the listener
+     * @return these options
+     */
+    public SolverOptions addListener(SolverListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * solve a configuration with the solver these options pick
+     * @param start the starting configuration
+     * @return the solver after it has solved
+     */
+    public PuzzleSolver solve(Configuration start) {
+        if (beamWidth > 0) {
+            return new BeamSearch(start, this);
+        }
+        if (external) {
+            return new ExternalSolver(start, this);
+        }
+        if (threads > 1) {
+            return new ParallelSolver(start, this);
+        }
+        return new Solver(start, this);
+    }
+}
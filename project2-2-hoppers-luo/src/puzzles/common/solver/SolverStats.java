@@ -0,0 +1,250 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * statistics of a running solve, kept by the solvers for their {@link SolverListener}s.
+ * a solver only keeps statistics when it has listeners, without them it has no stats
+ * object and every update is skipped by a single null check.
+ * the solver tells the stats when a new depth starts, either by taking nodes out of its
+ * queue one at a time or by a whole layer at once, and after each expanded node or layer
+ * how many neighbors were generated, how many of them were new and how long generating
+ * and looking them up took. the updates are public so solvers of other packages can keep
+ * stats too.
+ */
+public class SolverStats {
+    /** the listeners that are told about the solve */
+    private final List<SolverListener> listeners;
+    /** when the solve started */
+    private final long startNanos = System.nanoTime();
+    /** heap in use when the solve started */
+    private final long startHeap = usedHeap();
+    /** the size of the frontier of each depth so far */
+    private int[] frontiers = new int[16];
+    /** the depth being expanded, -1 before the first one */
+    private int depth = -1;
+    /** amount of nodes taken out of the queue */
+    private long dequeued;
+    /** amount of nodes that were queued up to the end of the current depth */
+    private long depthEnd;
+    /** amount of nodes expanded */
+    private long expanded;
+    /** amount of neighbors generated */
+    private long generated;
+    /** amount of generated neighbors that had been visited already */
+    private long duplicates;
+    /** the most states the solver remembered at once */
+    private long peakVisited;
+    /** estimated bytes the visited set takes, 0 if not known yet */
+    private long visitedBytes;
+    /** time spent generating neighbors, canonicalizing and pruning them included */
+    private long neighborNanos;
+    /** time spent looking neighbors up in the visited set */
+    private long lookupNanos;
+    /** time the solve took, 0 while it runs */
+    private long elapsedNanos;
+
+    /**
+     * create the stats of a solve
+     * @param listeners the listeners that are told about the solve
+     */
+    private SolverStats(List<SolverListener> listeners) {
+        this.listeners = new ArrayList<>(listeners);
+    }
+
+    /**
+     * create the stats of a solve if anyone listens to it
+     * @param options the options with the listeners
+     * @return the stats, null if there are no listeners
+     */
+    public static SolverStats of(SolverOptions options) {
+        return options.getListeners().isEmpty() ? null : new SolverStats(options.getListeners());
+    }
+
+    /**
+     * a node was taken out of the queue, a new depth starts when every node that was queued
+     * before the current depth started has been taken out
+     * @param queued amount of nodes that were ever put in the queue, including the start
+     */
+    void dequeue(long queued) {
+        if (dequeued == depthEnd) {
+            layer((int) (queued - depthEnd), queued);
+            depthEnd = queued;
+        }
+        dequeued++;
+    }
+
+    /**
+     * a new depth starts, the listeners are told that the one before it is done
+     * @param frontier amount of nodes at the new depth
+     * @param visited amount of states the solver remembers
+     */
+    public void layer(int frontier, long visited) {
+        peakVisited = Math.max(peakVisited, visited);
+        if (depth >= 0) {
+            for (SolverListener listener : listeners) {
+                listener.depthFinished(this);
+            }
+        }
+        depth++;
+        if (depth == frontiers.length) {
+            frontiers = Arrays.copyOf(frontiers, depth * 2);
+        }
+        frontiers[depth] = frontier;
+    }
+
+    /**
+     * nodes were expanded
+     * @param nodes amount of nodes
+     * @param neighbors amount of neighbors they generated
+     * @param added amount of those neighbors that had not been visited
+     * @param neighborTime nanoseconds spent generating the neighbors
+     * @param lookupTime nanoseconds spent looking the neighbors up
+     */
+    public void expanded(long nodes, long neighbors, long added, long neighborTime, long lookupTime) {
+        expanded += nodes;
+        generated += neighbors;
+        duplicates += neighbors - added;
+        neighborNanos += neighborTime;
+        lookupNanos += lookupTime;
+    }
+
+    /**
+     * the solve is done, the listeners are told about the last depth and the whole solve
+     * @param visited amount of states the solver remembered
+     * @param bytes bytes the visited states take, 0 to estimate it from the heap in use
+     */
+    public void finish(long visited, long bytes) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        peakVisited = Math.max(peakVisited, visited);
+        visitedBytes = bytes > 0 ? bytes : Math.max(0, usedHeap() - startHeap);
+        for (SolverListener listener : listeners) {
+            if (depth >= 0) {
+                listener.depthFinished(this);
+            }
+            listener.solveFinished(this);
+        }
+    }
+
+    /**
+     * get the heap in use, it includes garbage so it only gives a rough estimate
+     * @return bytes in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * get the depth being expanded, or the last one once the solve is done
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * get the size of the frontier of a depth
+     * @param depth the depth, at most {@link #getDepth()}
+     * @return amount of nodes at the depth
+     */
+    public int getFrontier(int depth) {
+        return frontiers[depth];
+    }
+
+    /**
+     * get amount of nodes expanded so far
+     * @return amount of nodes
+     */
+    public long getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * get amount of neighbors generated so far
+     * @return amount of neighbors
+     */
+    public long getGenerated() {
+        return generated;
+    }
+
+    /**
+     * get amount of generated neighbors that had been visited already
+     * @return amount of duplicates
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * get the share of the generated neighbors that had been visited already
+     * @return the duplicate ratio from 0 to 1
+     */
+    public double getDuplicateRatio() {
+        return generated == 0 ? 0 : (double) duplicates / generated;
+    }
+
+    /**
+     * get the most states the solver remembered at once so far
+     * @return amount of states
+     */
+    public long getPeakVisited() {
+        return peakVisited;
+    }
+
+    /**
+     * get the estimated bytes a remembered state takes, known when the solve is done
+     * @return bytes per state
+     */
+    public double getBytesPerState() {
+        return peakVisited == 0 ? 0 : (double) visitedBytes / peakVisited;
+    }
+
+    /**
+     * get the time spent generating neighbors, canonicalizing and pruning them included, 0 for
+     * solvers that can't split their time
+     * @return nanoseconds
+     */
+    public long getNeighborNanos() {
+        return neighborNanos;
+    }
+
+    /**
+     * get the time spent looking neighbors up in the visited set, 0 for solvers that can't split their time
+     * @return nanoseconds
+     */
+    public long getLookupNanos() {
+        return lookupNanos;
+    }
+
+    /**
+     * get the time the solve took so far
+     * @return nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * get amount of nodes expanded per second so far
+     * @return the throughput
+     */
+    public double getNodesPerSecond() {
+        return expanded / Math.max(1e-9, getElapsedNanos() / 1e9);
+    }
+
+    /**
+     * a summary of the solve
+     * @return the numbers on one line
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "expanded %d, generated %d, duplicates %.1f%%, peak visited %d, %.0f bytes/state, "
+                        + "neighbors %d ms, lookups %d ms, %.0f nodes/s",
+                expanded, generated, 100 * getDuplicateRatio(), peakVisited, getBytesPerState(),
+                neighborNanos / 1_000_000, lookupNanos / 1_000_000, getNodesPerSecond());
+    }
+}
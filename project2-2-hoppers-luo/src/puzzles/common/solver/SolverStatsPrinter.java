@@ -0,0 +1,31 @@
+package puzzles.common.solver;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * a listener that prints a line for every depth and a summary of the solve
+ */
+public class SolverStatsPrinter implements SolverListener {
+    /** where the lines are printed */
+    private final PrintStream out;
+
+    /**
+     * create a printer
+     * @param out where the lines are printed, like System.err so they don't mix with the solution
+     */
+    public SolverStatsPrinter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void depthFinished(SolverStats stats) {
+        out.printf(Locale.ROOT, "Depth %d: frontier %d, visited %d, %.0f nodes/s%n", stats.getDepth(),
+                stats.getFrontier(stats.getDepth()), stats.getPeakVisited(), stats.getNodesPerSecond());
+    }
+
+    @Override
+    public void solveFinished(SolverStats stats) {
+        out.println("Stats: " + stats);
+    }
+}
@@ -0,0 +1,28 @@
+package puzzles.common.solver;
+
+/**
+ * thrown by a solver that has to remember more states than its options allow,
+ * see {@link SolverOptions#setMaxStates(long)}
+ */
+public class StateLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    /** the most states the solver was allowed to remember */
+    private final long limit;
+
+    /**
+     * create the exception
+     * @param limit the most states the solver was allowed to remember
+     */
+    public StateLimitException(long limit) {
+        super("the search needs more than " + limit + " states");
+        this.limit = limit;
+    }
+
+    /**
+     * get the most states the solver was allowed to remember
+     * @return amount of states
+     */
+    public long getLimit() {
+        return limit;
+    }
+}
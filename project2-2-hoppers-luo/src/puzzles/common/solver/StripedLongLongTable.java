@@ -0,0 +1,98 @@
+package puzzles.common.solver;
+
+/**
+ * a {@link LongLongTable} that several threads can use at once. the keys are spread over
+ * stripes, each stripe is its own table behind its own lock, so threads only wait for
+ * each other when they touch the same stripe.
+ */
+public class StripedLongLongTable {
+    /** the stripes, the amount is a power of two */
+    private final LongLongTable[] stripes;
+
+    /**
+     * create an empty table
+     * @param threads amount of threads that use the table
+     */
+    public StripedLongLongTable(int threads) {
+        // a few stripes per thread keeps the chance of two threads meeting low
+        int count = Integer.highestOneBit(Math.max(1, threads) * 8 - 1) << 1;
+        this.stripes = new LongLongTable[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new LongLongTable();
+        }
+    }
+
+    /**
+     * get the value of a key
+     * @param key the key, not negative
+     * @return the value, -1 if the key is not in the table
+     */
+    public long get(long key) {
+        LongLongTable stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * checks if a key is in the table
+     * @param key the key, not negative
+     * @return true if the key has a value
+     */
+    public boolean containsKey(long key) {
+        LongLongTable stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.containsKey(key);
+        }
+    }
+
+    /**
+     * put a key into the table if it is not there yet
+     * @param key the key, not negative
+     * @param value the value
+     * @return true if the key was added, false if it already had a value
+     */
+    public boolean putIfAbsent(long key, long value) {
+        LongLongTable stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.putIfAbsent(key, value);
+        }
+    }
+
+    /**
+     * put a key into the table, or lower its value if the new value is smaller
+     * @param key the key, not negative
+     * @param value the value
+     */
+    public void putMin(long key, long value) {
+        LongLongTable stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.putMin(key, value);
+        }
+    }
+
+    /**
+     * get amount of keys in the table
+     * @return the size
+     */
+    public int size() {
+        int size = 0;
+        for (LongLongTable stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * the stripe a key belongs to, picked with the high bits of its hash so the
+     * low bits still spread the keys inside the stripe
+     * @param key the key
+     * @return the stripe
+     */
+    private LongLongTable stripe(long key) {
+        long hash = key * 0xC2B2AE3D27D4EB4FL;
+        return stripes[(int) (hash >>> 40) & (stripes.length - 1)];
+    }
+}
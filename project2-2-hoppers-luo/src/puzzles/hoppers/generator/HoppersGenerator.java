@@ -0,0 +1,200 @@
+package puzzles.hoppers.generator;
+
+import puzzles.hoppers.model.HoppersBoard;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * generates random hoppers puzzles that can be solved. a puzzle is played backwards from a goal:
+ * the red frog is put on a random lily pad, and then a random frog un-jumps again and again,
+ * moving back over an empty pad and leaving a green frog there, until the puzzle has as many
+ * green frogs as asked for. playing the un-jumps forwards again solves the puzzle.
+ * every puzzle gets its own seed, taken in order from the seed of the run, so the puzzles
+ * only depend on the seed and not on how the threads happened to be scheduled.
+ * <pre>
+ *     java puzzles.hoppers.generator.HoppersGenerator rows columns greens [-n count] [--seed seed]
+ *                                                     [-j jobs] [-o directory]
+ * </pre>
+ * the files are named hoppers-ROWSxCOLUMNS-gGREENS-INDEX.txt and are in the format
+ * {@link puzzles.hoppers.model.HoppersConfig} reads.
+ * @author Jonathan Luo
+ */
+public class HoppersGenerator {
+    /** how often a puzzle is started over from a new goal before giving up */
+    private static final int ATTEMPTS = 1000;
+
+    /** the board the puzzles are on, every cell frogs can reach is a lily pad */
+    private final HoppersBoard board;
+    /** amount of green frogs of every puzzle */
+    private final int greens;
+
+    /**
+     * create a generator of puzzles of a size
+     * @param rows amount of rows
+     * @param columns amount of columns
+     * @param greens amount of green frogs
+     * @throws IllegalArgumentException if the frogs can't fit on the board
+     */
+    public HoppersGenerator(int rows, int columns, int greens) {
+        if (rows < 1 || columns < 1) {
+            throw new IllegalArgumentException("the board needs at least one row and one column");
+        }
+        int cells = HoppersBoard.index(columns, rows, 0);
+        long[] playable = new long[Math.max(1, (cells + 63) >>> 6)];
+        for (int cell = 0; cell < cells; cell++) {
+            HoppersBoard.set(playable, cell);
+        }
+        this.board = HoppersBoard.of(rows, columns, playable);
+        if (greens < 0 || greens >= cells) {
+            throw new IllegalArgumentException(greens + " green frogs don't fit on " + cells + " lily pads");
+        }
+        this.greens = greens;
+    }
+
+    /**
+     * generate a puzzle
+     * @param seed the seed of the puzzle
+     * @return the puzzle in the text format of a puzzle file
+     * @throws IllegalStateException if no puzzle with that many green frogs was found
+     */
+    public String generate(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] green = board.newBitboard();
+        // the frog and jump of each un-jump that can be made, as pairs
+        int[] moves = new int[2 * board.getCells() * 8];
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            Arrays.fill(green, 0);
+            int red = random.nextInt(board.getCells());
+            int placed = 0;
+            while (placed < greens) {
+                int size = 0;
+                for (int frog = 0; frog < board.getCells(); frog++) {
+                    if (frog != red && !HoppersBoard.get(green, frog)) {
+                        continue;
+                    }
+                    // a jump from the frog's cell, made the other way, lands the frog on its cell
+                    for (int jump = board.firstJump(frog); jump < board.lastJump(frog); jump++) {
+                        if (isEmpty(green, red, board.landing(jump)) && isEmpty(green, red, board.jumped(jump))) {
+                            moves[size++] = frog;
+                            moves[size++] = jump;
+                        }
+                    }
+                }
+                if (size == 0) {
+                    break;
+                }
+                int pick = random.nextInt(size / 2) * 2;
+                int frog = moves[pick];
+                int jump = moves[pick + 1];
+                if (frog == red) {
+                    red = board.landing(jump);
+                } else {
+                    HoppersBoard.clear(green, frog);
+                    HoppersBoard.set(green, board.landing(jump));
+                }
+                HoppersBoard.set(green, board.jumped(jump));
+                placed++;
+            }
+            if (placed == greens) {
+                return board.toText(green, red);
+            }
+        }
+        throw new IllegalStateException("no puzzle with " + greens + " green frogs found for seed " + seed);
+    }
+
+    /**
+     * checks if a cell has no frog
+     * @param green bitboard of the green frogs
+     * @param red cell of the red frog
+     * @param cell the cell
+     * @return true if the cell is empty
+     */
+    private static boolean isEmpty(long[] green, int red, int cell) {
+        return cell != red && !HoppersBoard.get(green, cell);
+    }
+
+    /**
+     * generate puzzles into a directory on several threads
+     * @param count amount of puzzles
+     * @param seed the seed of the run
+     * @param jobs amount of threads
+     * @param directory the directory the files are written to
+     * @return the files
+     * @throws IOException if a file can't be written
+     */
+    public List<Path> generate(int count, long seed, int jobs, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        // the seeds are drawn before the threads start, so each puzzle always gets the same one
+        long[] seeds = new SplittableRandom(seed).longs(count).toArray();
+        String prefix = "hoppers-" + board.getRow() + "x" + board.getColumn() + "-g" + greens + "-";
+        int digits = String.valueOf(Math.max(0, count - 1)).length();
+        ExecutorService pool = Executors.newFixedThreadPool(jobs);
+        try {
+            List<Future<Path>> files = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Path file = directory.resolve(prefix + String.format("%0" + digits + "d", i) + ".txt");
+                long puzzleSeed = seeds[i];
+                files.add(pool.submit(() -> Files.writeString(file, generate(puzzleSeed))));
+            }
+            List<Path> written = new ArrayList<>();
+            for (Future<Path> file : files) {
+                written.add(file.get());
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("generating was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * generate puzzles
+     * @param args the size, the amount of green frogs and the options
+     */
+    public static void main(String[] args) {
+        List<String> rest = new ArrayList<>();
+        int count = 1;
+        long seed = 0;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        Path directory = Path.of("generated");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-n" -> count = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "-j", "--jobs" -> jobs = Integer.parseInt(args[++i]);
+                case "-o" -> directory = Path.of(args[++i]);
+                default -> rest.add(args[i]);
+            }
+        }
+        if (rest.size() != 3 || jobs < 1) {
+            System.out.println("Usage: java HoppersGenerator rows columns greens [-n count] [--seed seed] "
+                    + "[-j jobs] [-o directory]");
+            return;
+        }
+        try {
+            HoppersGenerator generator = new HoppersGenerator(Integer.parseInt(rest.get(0)),
+                    Integer.parseInt(rest.get(1)), Integer.parseInt(rest.get(2)));
+            List<Path> files = generator.generate(count, seed, jobs, directory);
+            System.out.println(files.size() + " puzzles written to " + directory);
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
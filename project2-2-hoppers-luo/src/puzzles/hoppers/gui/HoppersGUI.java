@@ -11,20 +11,27 @@ import javafx.scene.layout.HBox;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.FileChooser;
+import puzzles.common.Coordinates;
 import puzzles.common.Observer;
 import puzzles.hoppers.model.HoppersConfig;
 import puzzles.hoppers.model.HoppersModel;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
-import java.util.Arrays;
+import java.util.List;
 
 /**
- * the GUI portion of hoppers
+ * the GUI portion of hoppers.
+ * every space is a button with its own image view, a model event only swaps the images of the
+ * spaces that changed since the config shown last, and the grid is only built again when a board
+ * of another size is loaded. the model tells the gui about its events on the javafx thread and
+ * merges the ones that come in while the gui is busy, so the gui catches up on the latest
+ * config in one go.
  * @author Jonthan Luo
  */
 public class HoppersGUI extends Application implements Observer<HoppersModel, String> {
@@ -52,8 +59,10 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
     private Label label;
     /** a 2d array of buttons that will represent the spaces on the board, allows for selection and button manipulation*/
     private Button[][] buttons;
-    /** the 2d array of characters represents the hopper board */
-    private char[][] board;
+    /** the image view of every button, the images are swapped instead of making new views */
+    private ImageView[][] views;
+    /** the config the buttons show */
+    private HoppersConfig shown;
     /** the borderpane that will contain elements to the hopper GUI */
     private BorderPane borderPane;
 
@@ -64,11 +73,37 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
     public void init() throws Exception {
         String filename = getParameters().getRaw().get(0);
         model = new HoppersModel(filename); // create new hoppers model with file from system args
-        model.addObserver(this);
-        board = model.getCurrentConfig().getBoard();
-        // create 2d array based on the row and colour of the board
-        buttons = new Button[model.getRow()][model.getCol()];
+        // the events are shown on the javafx thread, a burst of them as one
+        model.addObserver(this, Platform::runLater);
+        // hints that were solved in the background are shown on the javafx thread
+        model.setCallbackExecutor(Platform::runLater);
+    }
+
+    /**
+     * get the image of a space of the board
+     * @param cell what is on the space, see {@link HoppersConfig#getCell(int, int)}
+     * @return the shared image
+     */
+    private Image imageOf(char cell){
+        return switch (cell) {
+            case 'R' -> redFrog;
+            case 'G' -> greenFrog;
+            case '.' -> lilyPad;
+            default -> water;
+        };
+    }
 
+    /**
+     * show what is on a space of the current config
+     * @param config the current config
+     * @param r the row
+     * @param c the column
+     */
+    private void paint(HoppersConfig config, int r, int c){
+        Image image = imageOf(config.getCell(r, c));
+        if (views[r][c].getImage() != image) {
+            views[r][c].setImage(image);
+        }
     }
 
     /**
@@ -77,8 +112,13 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
      */
     public GridPane createHoppersBoard(){
         GridPane hoppers = new GridPane();
-        for(int r =0; r< model.getRow(); r++){
-            for(int c = 0; c< model.getCol(); c++){
+        HoppersConfig config = model.getCurrentConfig();
+        shown = config;
+        // create 2d arrays based on the rows and columns of the board
+        buttons = new Button[config.getRow()][config.getColumn()];
+        views = new ImageView[config.getRow()][config.getColumn()];
+        for(int r =0; r< config.getRow(); r++){
+            for(int c = 0; c< config.getColumn(); c++){
                 // create a button for each space on hopper board
                 Button button = new Button();
                 button.setMinSize(ICON_SIZE, ICON_SIZE);
@@ -87,17 +127,9 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
                 int finalC = c;
                 // set each buttons action to be select when user clicks on them
                 button.setOnAction(event -> {model.select(finalR, finalC);});
-                // set eh graphic for each button based on the character at that location
-                if (board[r][c] == 'R'){
-                    button.setGraphic(new ImageView(redFrog));
-                } else if (board[r][c]=='G') {
-                    button.setGraphic(new ImageView(greenFrog));
-                }else if(board[r][c] == '.'){
-                    button.setGraphic(new ImageView(lilyPad));
-                }else {
-                    button.setGraphic(new ImageView(water));
-
-                }
+                // set the graphic for each button based on the character at that location
+                views[r][c] = new ImageView(imageOf(config.getCell(r, c)));
+                button.setGraphic(views[r][c]);
                 // set the position at a row and column to this particular button and add it to the grid pane
                 buttons[r][c] = button;
                 hoppers.add(button, c, r);
@@ -138,14 +170,22 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
         Button load = new Button("Load");
         Button reset = new Button("Reset");
         Button hint = new Button("Hint");
+        Button undo = new Button("Undo");
+        Button redo = new Button("Redo");
         load.setPrefSize(50, 25);
         reset.setPrefSize(50, 25);
         hint.setPrefSize(50,25);
+        undo.setPrefSize(50, 25);
+        redo.setPrefSize(50, 25);
         load.setFont(Font.font("arial", FontWeight.BOLD, FONT_SIZE));
         reset.setFont(Font.font("arial", FontWeight.BOLD, FONT_SIZE));
         hint.setFont(Font.font("arial", FontWeight.BOLD, FONT_SIZE));
+        undo.setFont(Font.font("arial", FontWeight.BOLD, FONT_SIZE));
+        redo.setFont(Font.font("arial", FontWeight.BOLD, FONT_SIZE));
         hint.setOnAction(event -> {model.hint();});
         reset.setOnAction(event -> {model.reset();});
+        undo.setOnAction(event -> {model.undo();});
+        redo.setOnAction(event -> {model.redo();});
 
         // the action for pressing load button
         final FileChooser chooser = new FileChooser();
@@ -160,7 +200,7 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
                 model.load(file);
             }
         });
-        actionButtons.getChildren().addAll(load, reset, hint);
+        actionButtons.getChildren().addAll(load, reset, hint, undo, redo);
         actionButtons.setAlignment(Pos.CENTER);
         borderPane.setBottom(actionButtons);
 
@@ -178,30 +218,23 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
     @Override
     public void update(HoppersModel hoppersModel, String msg) {
         label.setText(msg);
-        board = hoppersModel.getCurrentConfig().getBoard();
         model = hoppersModel;
-        buttons = new Button[hoppersModel.getRow()][hoppersModel.getCol()];
-
-        //change board when new file is loaded
-        GridPane hoppers = createHoppersBoard();
-        hoppers.setAlignment(Pos.CENTER);
-        borderPane.setCenter(hoppers);
-
-        // update the button graphic
-        for(int r =0; r< hoppersModel.getRow(); r++) {
-            for (int c = 0; c < hoppersModel.getCol(); c++) {
-                if (board[r][c] == 'R'){
-                    buttons[r][c].setGraphic(new ImageView(redFrog));
-                } else if (board[r][c]=='G') {
-                    buttons[r][c].setGraphic(new ImageView(greenFrog));
-                }else if(board[r][c] == '.'){
-                    buttons[r][c].setGraphic(new ImageView(lilyPad));
-                }else {
-                    buttons[r][c].setGraphic(new ImageView(water));
-                }
-            }
+        // events may have been merged, so compare with what is shown instead of the newest event
+        HoppersConfig config = hoppersModel.getCurrentConfig();
+        List<Coordinates> changed = config.changedCells(shown);
+        if (changed == null) {
+            //change board when a file of another size is loaded
+            GridPane hoppers = createHoppersBoard();
+            hoppers.setAlignment(Pos.CENTER);
+            borderPane.setCenter(hoppers);
+            this.stage.sizeToScene();
+            return;
+        }
+        // only the spaces that changed get another image
+        for (Coordinates cell : changed) {
+            paint(config, cell.row(), cell.col());
         }
-        this.stage.sizeToScene();  // when a different sized puzzle is loaded
+        shown = config;
     }
 
     /**
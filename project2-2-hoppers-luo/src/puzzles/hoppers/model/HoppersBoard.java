@@ -0,0 +1,475 @@
+package puzzles.hoppers.model;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * the shape of a hoppers board, shared by every config of the same puzzle.
+ * a frog can only ever stand on a cell whose row and column have the same parity,
+ * so only those cells are numbered (in row-major order) and the configs keep their
+ * frogs as bitboards over these cell numbers. boards with up to 64 such cells, which
+ * includes every board up to 11x11, fit into a single long, bigger boards use more words.
+ * the board also holds a jump table for every lily pad, built once so that generating
+ * moves never has to allocate, the rotations and mirrors that map the lily pads
+ * onto themselves, and the zobrist keys the configs are hashed with.
+ * @author Jonathan Luo
+ */
+public class HoppersBoard {
+    /**
+     * the jumps a frog can make as (row offset, column offset) pairs for the landing space,
+     * the jumped space is always halfway. this is the order the moves were put into the
+     * map of the old makeMove, the table keeps that map's iteration order so the solver
+     * still finds the same solutions
+     */
+    private static final int[][] MOVES = {
+            {2, 2}, {-2, -2}, {-2, 2}, {2, -2},     // diagonal
+            {0, 4}, {0, -4}, {-4, 0}, {4, 0}        // horizontal and vertical
+    };
+    /**
+     * boards that are in use, so a puzzle shape is only built once while it has configs. the
+     * boards are held weakly, a shape nobody uses anymore is dropped
+     */
+    private static final Map<String, BoardReference> BOARDS = new HashMap<>();
+    /** the references of the boards that were dropped */
+    private static final ReferenceQueue<HoppersBoard> DROPPED = new ReferenceQueue<>();
+
+    /** amount of rows the board has */
+    private final int row;
+    /** amount of columns the board has */
+    private final int column;
+    /** amount of cells whose row and column have the same parity */
+    private final int cells;
+    /** amount of longs a bitboard over the cells needs */
+    private final int words;
+    /** the row of each cell number */
+    private final int[] cellRow;
+    /** the column of each cell number */
+    private final int[] cellCol;
+    /** bitboard of the cells that are lily pads, the rest is water */
+    private final long[] playable;
+    /** the jumps of all cells as flat (landing cell, jumped cell) pairs */
+    private final int[] jumps;
+    /** the first jump of each cell, the jumps of a cell end where the next cell's start */
+    private final int[] jumpStart;
+    /** the symmetries of the board as cell permutations, the identity comes first */
+    private final int[][] symmetries;
+    /** random zobrist key of a green frog on each cell */
+    private final long[] greenKeys;
+    /** random zobrist key of the red frog on each cell */
+    private final long[] redKeys;
+
+    /**
+     * create the shape of a board and its jump tables
+     * @param row amount of rows
+     * @param column amount of columns
+     * @param playable bitboard of the lily pad cells
+     */
+    private HoppersBoard(int row, int column, long[] playable) {
+        this.row = row;
+        this.column = column;
+        this.cells = index(column, row, 0);
+        this.words = Math.max(1, (cells + 63) >>> 6);
+        this.cellRow = new int[cells];
+        this.cellCol = new int[cells];
+        for (int r = 0; r < row; r++) {
+            for (int c = r & 1; c < column; c += 2) {
+                cellRow[index(column, r, c)] = r;
+                cellCol[index(column, r, c)] = c;
+            }
+        }
+        this.playable = Arrays.copyOf(playable, words);
+        this.jumpStart = new int[cells + 1];
+        int[] table = new int[cells * MOVES.length * 2];
+        int size = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            jumpStart[cell] = size / 2;
+            if (!isPlayable(cell)) {
+                continue;
+            }
+            for (int[] move : moveOrder(cellRow[cell], cellCol[cell])) {
+                int to = index(cellRow[cell] + move[0], cellCol[cell] + move[1]);
+                int over = index(cellRow[cell] + move[0] / 2, cellCol[cell] + move[1] / 2);
+                // only keep jumps that stay on the lily pads
+                if (to != -1 && over != -1 && isPlayable(to) && isPlayable(over)) {
+                    table[size++] = to;
+                    table[size++] = over;
+                }
+            }
+        }
+        jumpStart[cells] = size / 2;
+        this.jumps = Arrays.copyOf(table, size);
+        this.symmetries = findSymmetries();
+        // fixed keys, so a config hashes the same in every run
+        this.greenKeys = new long[cells];
+        this.redKeys = new long[cells];
+        SplittableRandom random = new SplittableRandom(0x5EED_F406L);
+        for (int cell = 0; cell < cells; cell++) {
+            greenKeys[cell] = random.nextLong();
+            redKeys[cell] = random.nextLong();
+        }
+    }
+
+    /**
+     * find which of the 8 rotations and mirrors of a rectangle keep every lily pad on a
+     * lily pad. the quarter turns and the diagonal mirrors only exist for square boards
+     * @return the symmetries as cell permutations, the identity first
+     */
+    private int[][] findSymmetries() {
+        int last = row - 1;
+        int lastCol = column - 1;
+        int[][] found = new int[8][];
+        int count = 0;
+        for (int transform = 0; transform < 8; transform++) {
+            if (transform >= 4 && row != column) {
+                break;
+            }
+            int[] permutation = new int[cells];
+            for (int cell = 0; cell < cells && permutation != null; cell++) {
+                int r = cellRow[cell];
+                int c = cellCol[cell];
+                int target = switch (transform) {
+                    case 0 -> index(r, c);
+                    case 1 -> index(last - r, lastCol - c);     // half turn
+                    case 2 -> index(r, lastCol - c);            // left to right mirror
+                    case 3 -> index(last - r, c);               // top to bottom mirror
+                    case 4 -> index(c, last - r);               // quarter turn
+                    case 5 -> index(lastCol - c, r);            // three quarter turn
+                    case 6 -> index(c, r);                      // main diagonal mirror
+                    default -> index(lastCol - c, last - r);    // other diagonal mirror
+                };
+                if (target == -1 || isPlayable(target) != isPlayable(cell)) {
+                    permutation = null;
+                } else {
+                    permutation[cell] = target;
+                }
+            }
+            if (permutation != null) {
+                found[count++] = permutation;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * a weak reference to a board that knows its key in {@link #BOARDS}
+     */
+    private static class BoardReference extends WeakReference<HoppersBoard> {
+        /** the key of the board */
+        private final String key;
+
+        /**
+         * create a reference to a board
+         * @param board the board
+         * @param key the key of the board
+         */
+        BoardReference(HoppersBoard board, String key) {
+            super(board, DROPPED);
+            this.key = key;
+        }
+    }
+
+    /**
+     * get the board of a puzzle shape, a board is only built when no config of the shape is
+     * left, so configs of the same shape always share their board
+     * @param row amount of rows
+     * @param column amount of columns
+     * @param playable bitboard of the lily pad cells
+     * @return the board
+     */
+    public static HoppersBoard of(int row, int column, long[] playable) {
+        String key = row + "x" + column + Arrays.toString(playable);
+        synchronized (BOARDS) {
+            for (Reference<? extends HoppersBoard> dropped; (dropped = DROPPED.poll()) != null; ) {
+                BOARDS.remove(((BoardReference) dropped).key, dropped);
+            }
+            BoardReference reference = BOARDS.get(key);
+            HoppersBoard board = reference == null ? null : reference.get();
+            if (board == null) {
+                board = new HoppersBoard(row, column, playable);
+                BOARDS.put(key, new BoardReference(board, key));
+            }
+            return board;
+        }
+    }
+
+    /**
+     * the moves of a frog in the order the map of the old makeMove iterated over them,
+     * a hash map with 16 buckets over the landing coordinates
+     * @param r row of the frog
+     * @param c column of the frog
+     * @return the moves as (row offset, column offset) pairs
+     */
+    private static int[][] moveOrder(int r, int c) {
+        int[][] order = MOVES.clone();
+        Arrays.sort(order, (a, b) -> Integer.compare(bucket(r + a[0], c + a[1]), bucket(r + b[0], c + b[1])));
+        return order;
+    }
+
+    /**
+     * the hash map bucket of a coordinate
+     * @param r the row
+     * @param c the column
+     * @return the bucket, 0 to 15
+     */
+    private static int bucket(int r, int c) {
+        int hash = 31 * r + c;      // the hash code of a Coordinates record
+        return (hash ^ (hash >>> 16)) & 15;
+    }
+
+    /**
+     * get the cell number of a row and column on a board with the given amount of columns.
+     * an even row has its cells in the even columns, an odd row in the odd columns
+     * @param column amount of columns of the board
+     * @param r the row
+     * @param c the column, must have the same parity as the row
+     * @return the cell number
+     */
+    public static int index(int column, int r, int c) {
+        return ((r + 1) / 2) * ((column + 1) / 2) + (r / 2) * (column / 2) + (c >> 1);
+    }
+
+    /**
+     * create an empty bitboard for this board
+     * @return a bitboard with no cells set
+     */
+    public long[] newBitboard() {
+        return new long[words];
+    }
+
+    /**
+     * get the cell number of a row and column
+     * @param r the row
+     * @param c the column
+     * @return the cell number, -1 if the position is outside the board or can never hold a frog
+     */
+    public int index(int r, int c) {
+        if (r < 0 || r >= row || c < 0 || c >= column || ((r ^ c) & 1) != 0) {
+            return -1;
+        }
+        return index(column, r, c);
+    }
+
+    /**
+     * get the first jump of a cell, a frog on the cell can make the jumps from
+     * {@link #firstJump(int)} up to but not including {@link #lastJump(int)}
+     * @param cell the cell number
+     * @return number of the first jump
+     */
+    public int firstJump(int cell) {
+        return jumpStart[cell];
+    }
+
+    /**
+     * get the end of the jumps of a cell
+     * @param cell the cell number
+     * @return number after the last jump
+     */
+    public int lastJump(int cell) {
+        return jumpStart[cell + 1];
+    }
+
+    /**
+     * get where a jump lands
+     * @param jump number of the jump
+     * @return the landing cell
+     */
+    public int landing(int jump) {
+        return jumps[2 * jump];
+    }
+
+    /**
+     * get the space a jump goes over
+     * @param jump number of the jump
+     * @return the jumped cell
+     */
+    public int jumped(int jump) {
+        return jumps[2 * jump + 1];
+    }
+
+    /**
+     * find the space that gets jumped when a frog jumps from a cell to another
+     * @param from the cell of the frog
+     * @param to the landing cell
+     * @return the jumped cell, -1 if the frog can't jump from one to the other
+     */
+    public int jumpedCell(int from, int to) {
+        for (int jump = firstJump(from); jump < lastJump(from); jump++) {
+            if (landing(jump) == to) {
+                return jumped(jump);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * get the row of a cell
+     * @param cell the cell number
+     * @return the row
+     */
+    public int rowOf(int cell) {
+        return cellRow[cell];
+    }
+
+    /**
+     * get the column of a cell
+     * @param cell the cell number
+     * @return the column
+     */
+    public int colOf(int cell) {
+        return cellCol[cell];
+    }
+
+    /**
+     * checks if a cell is a lily pad
+     * @param cell the cell number
+     * @return true if frogs can stand on the cell, false if it is water
+     */
+    public boolean isPlayable(int cell) {
+        return get(playable, cell);
+    }
+
+    /**
+     * get the lily pads of the board
+     * @return a copy of the bitboard of the lily pad cells
+     */
+    public long[] getPlayable() {
+        return playable.clone();
+    }
+
+    /**
+     * write frogs on this board in the text format of a puzzle file. the lines end in '\n' like
+     * the data files, so the same puzzle gives the same bytes on every platform
+     * @param green bitboard of the green frogs
+     * @param red cell of the red frog, -1 for none
+     * @return the text of the file
+     */
+    public String toText(long[] green, int red) {
+        StringBuilder text = new StringBuilder();
+        text.append(row).append(' ').append(column).append('\n');
+        for (int r = 0; r < row; r++) {
+            for (int c = 0; c < column; c++) {
+                int cell = index(r, c);
+                char ch;
+                if (cell == -1 || !isPlayable(cell)) {
+                    ch = '*';
+                } else if (cell == red) {
+                    ch = 'R';
+                } else if (get(green, cell)) {
+                    ch = 'G';
+                } else {
+                    ch = '.';
+                }
+                text.append(c == 0 ? "" : " ").append(ch);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * get the zobrist key of a green frog on a cell
+     * @param cell the cell number
+     * @return the key
+     */
+    public long greenKey(int cell) {
+        return greenKeys[cell];
+    }
+
+    /**
+     * get the zobrist key of the red frog on a cell
+     * @param cell the cell number
+     * @return the key, 0 for no red frog
+     */
+    public long redKey(int cell) {
+        return cell == -1 ? 0 : redKeys[cell];
+    }
+
+    /**
+     * get the zobrist hash of a set of frogs, the xor of the keys of every frog
+     * @param green bitboard of the green frogs
+     * @param red cell number of the red frog, -1 if there is none
+     * @return the hash
+     */
+    public long zobrist(long[] green, int red) {
+        long hash = redKey(red);
+        for (int word = 0; word < green.length; word++) {
+            for (long bits = green[word]; bits != 0; bits &= bits - 1) {
+                hash ^= greenKeys[(word << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * get the rotations and mirrors that map the board onto itself
+     * @return the symmetries as cell permutations, the identity is always the first one
+     */
+    public int[][] getSymmetries() {
+        return symmetries;
+    }
+
+    /**
+     * get amount of rows of the board
+     * @return amount of rows
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * get amount of columns of the board
+     * @return amount of columns
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * get amount of numbered cells
+     * @return amount of cells
+     */
+    public int getCells() {
+        return cells;
+    }
+
+    /**
+     * get amount of longs in a bitboard of this board
+     * @return amount of words
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * checks if a bit is set in a bitboard
+     * @param bits the bitboard
+     * @param cell the cell number
+     * @return true if the bit is set
+     */
+    public static boolean get(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * set a bit in a bitboard
+     * @param bits the bitboard
+     * @param cell the cell number
+     */
+    public static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * clear a bit in a bitboard
+     * @param bits the bitboard
+     * @param cell the cell number
+     */
+    public static void clear(long[] bits, int cell) {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+}
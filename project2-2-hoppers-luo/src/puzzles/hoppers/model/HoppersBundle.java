@@ -0,0 +1,278 @@
+package puzzles.hoppers.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * a binary file with many hoppers puzzles, for batch runs that would otherwise open thousands
+ * of small text files. the file is memory mapped and starts with an index, so any puzzle can be
+ * read by its number without looking at the others.
+ * <pre>
+ *     long      magic
+ *     int       version
+ *     int       amount of puzzles
+ *     long[]    byte offset of each puzzle
+ *     puzzle:   short rows, short columns, int red frog cell (-1 for none),
+ *               short name length, the name in utf-8,
+ *               long[] lily pad bitboard, long[] green frog bitboard
+ * </pre>
+ * the bitboards have as many longs as {@link HoppersBoard#getWords()} of the board.
+ * <pre>
+ *     java puzzles.hoppers.model.HoppersBundle pack bundle file or directory...
+ *     java puzzles.hoppers.model.HoppersBundle unpack bundle directory
+ *     java puzzles.hoppers.model.HoppersBundle list bundle
+ * </pre>
+ * @author Jonathan Luo
+ */
+public class HoppersBundle {
+    /** the file extension of bundles */
+    public static final String EXTENSION = ".hbd";
+    /** the first long of every bundle */
+    private static final long MAGIC = 0x484F5050_42554E44L;
+    /** the version of the file layout */
+    private static final int VERSION = 1;
+    /** bytes before the offsets of the puzzles */
+    private static final int HEADER = Long.BYTES + 2 * Integer.BYTES;
+
+    /** the mapped file */
+    private final ByteBuffer data;
+    /** amount of puzzles in the bundle */
+    private final int size;
+
+    /**
+     * open a bundle
+     * @param file the bundle file
+     * @throws IOException if the file can't be read or is not a bundle
+     */
+    public HoppersBundle(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too big to map");
+            }
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.limit() < HEADER || data.getLong(0) != MAGIC || data.getInt(Long.BYTES) != VERSION) {
+            throw new IOException(file + " is not a hoppers bundle of version " + VERSION);
+        }
+        this.size = data.getInt(Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * get amount of puzzles in the bundle
+     * @return amount of puzzles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * get where a puzzle starts
+     * @param index number of the puzzle
+     * @return byte offset of the puzzle
+     */
+    private int offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("puzzle " + index + " of " + size);
+        }
+        return (int) data.getLong(HEADER + index * Long.BYTES);
+    }
+
+    /**
+     * get the name of a puzzle, usually the name of the file it came from
+     * @param index number of the puzzle
+     * @return the name
+     */
+    public String name(int index) {
+        int offset = offset(index) + 2 * Short.BYTES + Integer.BYTES;
+        byte[] name = new byte[data.getShort(offset)];
+        data.get(offset + Short.BYTES, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * read a puzzle, only its own bytes are read. it can be called from several threads
+     * @param index number of the puzzle
+     * @return the config of the puzzle
+     */
+    public HoppersConfig get(int index) {
+        int offset = offset(index);
+        int rows = data.getShort(offset);
+        int columns = data.getShort(offset + Short.BYTES);
+        int red = data.getInt(offset + 2 * Short.BYTES);
+        offset += 2 * Short.BYTES + Integer.BYTES;
+        offset += Short.BYTES + data.getShort(offset);
+        long[] playable = new long[words(rows, columns)];
+        long[] green = new long[playable.length];
+        for (int word = 0; word < playable.length; word++) {
+            playable[word] = data.getLong(offset + word * Long.BYTES);
+            green[word] = data.getLong(offset + (playable.length + word) * Long.BYTES);
+        }
+        return new HoppersConfig(HoppersBoard.of(rows, columns, playable), green, red);
+    }
+
+    /**
+     * get amount of longs a bitboard of a board takes
+     * @param rows amount of rows
+     * @param columns amount of columns
+     * @return amount of longs
+     */
+    private static int words(int rows, int columns) {
+        return Math.max(1, (HoppersBoard.index(columns, rows, 0) + 63) >>> 6);
+    }
+
+    /**
+     * write puzzles to a bundle. the offsets are worked out first and the puzzles are then
+     * streamed into the file one at a time, so the bundle is never built in memory
+     * @param file the bundle file, it is replaced
+     * @param names the names of the puzzles
+     * @param configs the puzzles
+     * @throws IOException if the file can't be written, or the bundle would be bigger than
+     * the 2 GB a bundle can be mapped with
+     */
+    public static void write(Path file, List<String> names, List<HoppersConfig> configs) throws IOException {
+        byte[][] encodedNames = new byte[configs.size()][];
+        long[] offsets = new long[configs.size()];
+        long bytes = HEADER + (long) configs.size() * Long.BYTES;
+        for (int i = 0; i < configs.size(); i++) {
+            HoppersConfig config = configs.get(i);
+            encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            if (config.getRow() > Short.MAX_VALUE || config.getColumn() > Short.MAX_VALUE
+                    || encodedNames[i].length > Short.MAX_VALUE) {
+                throw new IOException(names.get(i) + " is too big for a bundle");
+            }
+            offsets[i] = bytes;
+            bytes += puzzleBytes(encodedNames[i], config.getHoppersBoard().getWords());
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("the puzzles take " + bytes + " bytes, a bundle can't be bigger than "
+                    + Integer.MAX_VALUE);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER + offsets.length * Long.BYTES);
+            header.putLong(MAGIC).putInt(VERSION).putInt(configs.size());
+            for (long offset : offsets) {
+                header.putLong(offset);
+            }
+            writeFully(channel, header);
+            for (int i = 0; i < configs.size(); i++) {
+                HoppersConfig config = configs.get(i);
+                long[] key = new long[config.keyWidth()];
+                config.writeKey(key, 0);
+                long[] playable = config.getHoppersBoard().getPlayable();
+                ByteBuffer puzzle = ByteBuffer.allocate(puzzleBytes(encodedNames[i], playable.length));
+                puzzle.putShort((short) config.getRow()).putShort((short) config.getColumn());
+                puzzle.putInt((int) key[playable.length]);
+                puzzle.putShort((short) encodedNames[i].length).put(encodedNames[i]);
+                for (long word : playable) {
+                    puzzle.putLong(word);
+                }
+                for (int word = 0; word < playable.length; word++) {
+                    puzzle.putLong(key[word]);
+                }
+                writeFully(channel, puzzle);
+            }
+        }
+    }
+
+    /**
+     * get amount of bytes a puzzle takes in a bundle
+     * @param name the name of the puzzle in utf-8
+     * @param words amount of longs a bitboard of the board takes
+     * @return amount of bytes
+     */
+    private static int puzzleBytes(byte[] name, int words) {
+        return 3 * Short.BYTES + Integer.BYTES + name.length + 2 * words * Long.BYTES;
+    }
+
+    /**
+     * write all of a filled buffer into a channel
+     * @param channel the channel
+     * @param buffer the buffer, it is flipped first
+     * @throws IOException if the channel can't be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * write a config in the text format of a puzzle file
+     * @param config the config
+     * @return the text of the file
+     * @see HoppersBoard#toText(long[], int)
+     */
+    public static String toText(HoppersConfig config) {
+        return config.getHoppersBoard().toText(config.getGreen(), config.getRed());
+    }
+
+    /**
+     * get the puzzle files of an argument
+     * @param arg a file or a directory of .txt files
+     * @return the files
+     * @throws IOException if the directory can't be listed
+     */
+    private static List<Path> files(String arg) throws IOException {
+        Path path = Path.of(arg);
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> listed = Files.list(path)) {
+            return listed.filter(p -> p.toString().endsWith(".txt")).sorted().toList();
+        }
+    }
+
+    /**
+     * convert between puzzle files and bundles
+     * @param args the command and its arguments
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length >= 3 && args[0].equals("pack")) {
+                List<String> names = new ArrayList<>();
+                List<HoppersConfig> configs = new ArrayList<>();
+                for (int i = 2; i < args.length; i++) {
+                    for (Path file : files(args[i])) {
+                        names.add(file.getFileName().toString());
+                        configs.add(HoppersConfig.read(file));
+                    }
+                }
+                write(Path.of(args[1]), names, configs);
+                System.out.println(configs.size() + " puzzles packed into " + args[1]);
+            } else if (args.length == 3 && args[0].equals("unpack")) {
+                HoppersBundle bundle = new HoppersBundle(Path.of(args[1]));
+                Path directory = Files.createDirectories(Path.of(args[2]));
+                for (int i = 0; i < bundle.size(); i++) {
+                    // only the file name, a bundle must not write outside the directory
+                    Path name = Path.of(bundle.name(i)).getFileName();
+                    Files.writeString(directory.resolve(name == null ? "puzzle-" + i + ".txt" : name.toString()),
+                            toText(bundle.get(i)));
+                }
+                System.out.println(bundle.size() + " puzzles unpacked into " + directory);
+            } else if (args.length == 2 && args[0].equals("list")) {
+                HoppersBundle bundle = new HoppersBundle(Path.of(args[1]));
+                for (int i = 0; i < bundle.size(); i++) {
+                    HoppersConfig config = bundle.get(i);
+                    System.out.println(i + " " + bundle.name(i) + " " + config.getRow() + "x" + config.getColumn()
+                            + " " + config.countGreens() + " green");
+                }
+            } else {
+                System.out.println("Usage: java HoppersBundle pack bundle file or directory...");
+                System.out.println("       java HoppersBundle unpack bundle directory");
+                System.out.println("       java HoppersBundle list bundle");
+            }
+        } catch (IOException ioe) {
+            System.out.println(ioe.getMessage());
+        }
+    }
+}
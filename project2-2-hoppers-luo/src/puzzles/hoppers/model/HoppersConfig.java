@@ -3,25 +3,27 @@ package puzzles.hoppers.model;
 import puzzles.common.Coordinates;
 import puzzles.common.solver.Configuration;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
- * the config class of the constructor
+ * the config class of the constructor. the frogs are kept as bitboards over the cells of
+ * a shared {@link HoppersBoard}, so copying, comparing and hashing a config only touches
+ * a few longs instead of the whole board.
  * @author Jonathan Luo
  */
 public class HoppersConfig implements Configuration{
-    /** 2 d array representing the hoppers board */
-    private final char[][] board;
-    /** amount of row the board has */
-    private final int row;
-    /** amount of columns the board has */
-    private final int column;
-    /** list of coordinates of frogs */
-    private final List<Coordinates> frogCoordinates;
+    /** the shape of the board, shared by all configs of the same puzzle */
+    private final HoppersBoard board;
+    /** bitboard of the cells that hold a green frog */
+    private final long[] green;
+    /** cell number of the red frog, -1 if there is none */
+    private final int red;
+    /** zobrist hash of the frogs, see {@link HoppersBoard#zobrist(long[], int)} */
+    private final long hash;
 
     /**
      * public hoppers config that takes in a string file, reads and creates the hoppers board
@@ -29,83 +31,358 @@ public class HoppersConfig implements Configuration{
      * @throws IOException exception for no file found
      */
     public HoppersConfig(String filename) throws IOException {
-        try (BufferedReader in = new BufferedReader(new FileReader(filename))){
-            String[] line = in.readLine().split("\\s++");
-            this.row = Integer.parseInt(line[0]);
-            this.column = Integer.parseInt(line[1]);
-            this.board = new char[row][column];
-            this.frogCoordinates = new ArrayList<>();
-            for (int r = 0; r<row; r++){
-                line = in.readLine().split("\\s++");
-                StringBuilder ch = new StringBuilder();
-                for(String s:line) {
-                    ch.append(s);}
-                char[] cells = ch.toString().toCharArray();
-                int colCount =0;
-                for (char c : cells){
-                    board[r][colCount] = c;
-                    // go through to check for frogs to create coordinates and add them to a list
-                    if(c == 'G' || c == 'R'){
-                        this.frogCoordinates.add(new Coordinates(r, colCount));
+        this(read(Path.of(filename)));
+    }
+
+    /**
+     * a copy of a config that was parsed
+     * @param parsed the config
+     */
+    private HoppersConfig(HoppersConfig parsed){
+        this.board = parsed.board;
+        this.green = parsed.green;
+        this.red = parsed.red;
+        this.hash = parsed.hash;
+    }
+
+    /**
+     * read a puzzle file
+     * @param file the file
+     * @return the config of the file
+     * @throws IOException if the file can't be read or is not a puzzle
+     */
+    public static HoppersConfig read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer text = ByteBuffer.allocate((int) channel.size());
+            while (text.hasRemaining() && channel.read(text) >= 0) {
+                // keep reading until the buffer is full
+            }
+            return parse(text.flip(), file.toString());
+        }
+    }
+
+    /**
+     * parse the text of a puzzle file from a buffer, which may be memory mapped. the first line
+     * has the amount of rows and columns, each following line is a row of the board, and the
+     * characters of a row are all its characters that are not whitespace.
+     * this reads the bytes directly, without building a string for every line
+     * @param text the text, read from its position up to its limit, the position is moved
+     * @param name name of the puzzle for the error messages
+     * @return the config
+     * @throws IOException if the text is not a puzzle
+     */
+    public static HoppersConfig parse(ByteBuffer text, String name) throws IOException {
+        int row = number(text, name);
+        int column = number(text, name);
+        while (text.hasRemaining() && !endOfLine(text)) {
+            text.get();
+        }
+        char[][] cells = new char[row][];
+        char[] line = new char[column];
+        for (int r = 0; r < row; r++) {
+            if (!text.hasRemaining()) {
+                throw new IOException(name + ": row " + r + " is missing");
+            }
+            int length = 0;
+            while (text.hasRemaining() && !endOfLine(text)) {
+                byte b = text.get();
+                if (!isSpace(b)) {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, 2 * length + 1);
                     }
-                    colCount++;
+                    line[length++] = (char) (b & 0xFF);
                 }
             }
+            cells[r] = Arrays.copyOf(line, length);
         }
+        HoppersBoard board = HoppersBoard.of(row, column, playable(row, column, cells));
+        long[] green = board.newBitboard();
+        int redCell = -1;
+        for (int r = 0; r<row; r++){
+            for (int c = 0; c<cells[r].length; c++){
+                char ch = cells[r][c];
+                if(ch == 'G'){
+                    HoppersBoard.set(green, board.index(r, c));
+                } else if (ch == 'R') {
+                    if (redCell != -1) {
+                        throw new IOException(name + ": more than one red frog");
+                    }
+                    redCell = board.index(r, c);
+                }
+            }
+        }
+        return new HoppersConfig(board, green, redCell);
     }
 
     /**
-     * private config for generating a hopper config for frogs
-     * @param other other config
-     * @param ch the char, red frog or green frog
-     * @param now coordinate of the frog after it has jumped
-     * @param jumped coordinate of the space it has jumped
-     * @param initial coordinate of the initial position of the frog
+     * read a number of the first line, after any blanks
+     * @param text the text
+     * @param name name of the puzzle for the error messages
+     * @return the number
+     * @throws IOException if there is no number
+     */
+    private static int number(ByteBuffer text, String name) throws IOException {
+        while (text.hasRemaining() && isSpace(text.get(text.position())) && !endOfLine(text)) {
+            text.get();
+        }
+        int number = 0;
+        int digits = 0;
+        while (text.hasRemaining() && text.get(text.position()) >= '0' && text.get(text.position()) <= '9') {
+            number = Math.addExact(Math.multiplyExact(number, 10), text.get() - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw new IOException(name + ": the first line needs the amount of rows and columns");
+        }
+        return number;
+    }
+
+    /**
+     * checks if a byte is whitespace, the same bytes as \s in a regex
+     * @param b the byte
+     * @return true if it is a space, tab, line break, vertical tab or form feed
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    /**
+     * checks if the text is at a line break and if so skips it, a \r\n counts as one
+     * @param text the text, it must have a byte left
+     * @return true if a line break was skipped
      */
-    private HoppersConfig(HoppersConfig other, char ch, Coordinates now, Coordinates jumped, Coordinates initial){
-        this.row = other.row;
-        this.column = other.column;
-        this.frogCoordinates = new ArrayList<>();
-        this.board = new char[row][column];
-        for(int r = 0; r< row; r++){
-            System.arraycopy(other.board[r], 0, this.board[r], 0 , column);
-        }
-        this.board[initial.row()][initial.col()] = '.';        // set previous to empty space
-        this.board[now.row()][now.col()] = ch;           // the jumped frogs position now
-        this.board[jumped.row()][jumped.col()] = '.';   // change the frog that got jumped to empty space
-        // loop through board to create and add frog coordinates
-        for(int r = 0; r< row; r++){
-            for (int c = 0;c<column; c++) {
-                if(this.board[r][c] == 'R'||this.board[r][c] == 'G'){
-                    this.frogCoordinates.add(new Coordinates(r, c));
+    private static boolean endOfLine(ByteBuffer text) {
+        byte b = text.get(text.position());
+        if (b == '\n') {
+            text.get();
+            return true;
+        }
+        if (b == '\r') {
+            text.get();
+            if (text.hasRemaining() && text.get(text.position()) == '\n') {
+                text.get();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * build the lily pad bitboard of a board that was read from a file
+     * @param row amount of rows
+     * @param column amount of columns
+     * @param cells the characters of each row
+     * @return bitboard of the lily pads
+     * @throws IOException if a lily pad or frog sits on a cell frogs can never reach
+     */
+    private static long[] playable(int row, int column, char[][] cells) throws IOException {
+        long[] playable = new long[Math.max(1, (HoppersBoard.index(column, row, 0) + 63) >>> 6)];
+        for (int r = 0; r<row; r++){
+            if (cells[r].length > column) {
+                throw new IOException("row " + r + " has more than " + column + " columns");
+            }
+            for (int c = 0; c<cells[r].length; c++){
+                if(cells[r][c] != '*'){
+                    if (((r ^ c) & 1) != 0) {
+                        throw new IOException("(" + r + ", " + c + ") must be water");
+                    }
+                    HoppersBoard.set(playable, HoppersBoard.index(column, r, c));
                 }
             }
         }
+        return playable;
+    }
+
+    /**
+     * private config for generating a hopper config for frogs
+     * @param other other config
+     * @param from cell number of the initial position of the frog
+     * @param over cell number of the green frog that gets jumped
+     * @param to cell number of the frog after it has jumped
+     */
+    private HoppersConfig(HoppersConfig other, int from, int over, int to){
+        this(other, from, over, to, false);
+    }
+
+    /**
+     * private config for a jump or for taking a jump back. taking a jump back is the same
+     * as the frog jumping from where it landed back to where it was, except that the frog it
+     * jumped over comes back instead of leaving
+     * @param other other config
+     * @param from cell number of the initial position of the frog
+     * @param over cell number of the green frog that gets jumped
+     * @param to cell number of the frog after it has jumped
+     * @param back true if the jumped frog comes back
+     */
+    private HoppersConfig(HoppersConfig other, int from, int over, int to, boolean back){
+        this.board = other.board;
+        this.green = other.green.clone();
+        if (back) {
+            HoppersBoard.set(this.green, over);     // the frog that got jumped is back
+        } else {
+            HoppersBoard.clear(this.green, over);   // the frog that got jumped is gone
+        }
+        // update the hash instead of computing it again, the jumped frog leaves the board
+        // and the jumping frog leaves its cell for the landing cell
+        long changed = board.greenKey(over);
+        if (other.red == from) {
+            this.red = to;
+            changed ^= board.redKey(from) ^ board.redKey(to);
+        } else {
+            this.red = other.red;
+            HoppersBoard.clear(this.green, from);   // set previous to empty space
+            HoppersBoard.set(this.green, to);       // the jumped frogs position now
+            changed ^= board.greenKey(from) ^ board.greenKey(to);
+        }
+        this.hash = other.hash ^ changed;
+    }
+
+    /**
+     * config that was unpacked from its frogs
+     * @param board the shape of the board
+     * @param green bitboard of the green frogs, it is not copied
+     * @param red cell number of the red frog
+     */
+    HoppersConfig(HoppersBoard board, long[] green, int red){
+        this.board = board;
+        this.green = green;
+        this.red = red;
+        this.hash = board.zobrist(green, red);
     }
 
     /**
      * make a jump/ create a hopper config, used in hoppers model.
-     * @param ch other config
-     * @param now coordinate of the frog after it has jumped
-     * @param jumped coordinate of the space it has jumped
+     * the jump must be valid, see {@link #validJump(Coordinates, Coordinates)}
      * @param initial coordinate of the initial position of the frog
+     * @param move coordinate of the frog after it has jumped
      * @return hopper config with changed position of frogs
      */
-    public HoppersConfig makeJump(char ch, Coordinates now, Coordinates jumped, Coordinates initial){
-        return new HoppersConfig(this, ch, now, jumped, initial);
+    public HoppersConfig makeJump(Coordinates initial, Coordinates move){
+        int from = cellOf(initial);
+        int to = cellOf(move);
+        return new HoppersConfig(this, from, board.jumpedCell(from, to), to);
+    }
+
+    /**
+     * get the move of a valid jump, see {@link #validJump(Coordinates, Coordinates)}
+     * @param initial coordinate of the initial position of the frog
+     * @param move coordinate of the frog after it has jumped
+     * @return the move
+     */
+    public HoppersMove moveOf(Coordinates initial, Coordinates move){
+        int from = cellOf(initial);
+        int to = cellOf(move);
+        return new HoppersMove(from, board.jumpedCell(from, to), to, from == red ? 'R' : 'G');
+    }
+
+    /**
+     * get the move that makes another config out of this one
+     * @param next a config of the same board one jump further
+     * @return the move, null if the other config is not one jump away
+     */
+    public HoppersMove moveTo(HoppersConfig next){
+        if (next.board != board) {
+            return null;
+        }
+        // the frog lands on the one cell that is free here and taken there
+        int to = -1;
+        for (int cell = 0; cell < board.getCells() && to == -1; cell++) {
+            if (!occupied(cell) && next.occupied(cell)) {
+                to = cell;
+            }
+        }
+        if (to == -1) {
+            return null;
+        }
+        for (int jump = board.firstJump(to); jump < board.lastJump(to); jump++) {
+            // the jumps of a board go both ways, so the jumps from the landing cell lead back
+            int from = board.landing(jump);
+            int over = board.jumped(jump);
+            if (occupied(from) && HoppersBoard.get(green, over) && !next.occupied(from) && !next.occupied(over)) {
+                HoppersMove move = new HoppersMove(from, over, to, from == red ? 'R' : 'G');
+                if (apply(move).equals(next)) {
+                    return move;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * make a move on this config
+     * @param move a move that is valid here
+     * @return the config after the move
+     */
+    public HoppersConfig apply(HoppersMove move){
+        return new HoppersConfig(this, move.from(), move.over(), move.to());
+    }
+
+    /**
+     * take a move back
+     * @param move the move that made this config
+     * @return the config before the move
+     */
+    public HoppersConfig revert(HoppersMove move){
+        return new HoppersConfig(this, move.to(), move.over(), move.from(), true);
+    }
+
+    /**
+     * get the spaces that differ between this config and another one of the same size.
+     * after a jump those are where the frog was, the frog it jumped and where it landed
+     * @param other the other config
+     * @return the spaces in row major order, null if the other board has another size
+     */
+    public List<Coordinates> changedCells(HoppersConfig other){
+        if (other.board.getRow() != board.getRow() || other.board.getColumn() != board.getColumn()) {
+            return null;
+        }
+        List<Coordinates> changed = new ArrayList<>();
+        if (other.board != board) {
+            // another shape, the water may have moved as well
+            for (int r = 0; r < board.getRow(); r++) {
+                for (int c = 0; c < board.getColumn(); c++) {
+                    if (getCell(r, c) != other.getCell(r, c)) {
+                        changed.add(new Coordinates(r, c));
+                    }
+                }
+            }
+            return changed;
+        }
+        // the cells are numbered in row major order, so the set bits come out in that order
+        long[] diff = green.clone();
+        for (int word = 0; word < diff.length; word++) {
+            diff[word] ^= other.green[word];
+        }
+        if (red != other.red) {
+            for (int cell : new int[]{red, other.red}) {
+                if (cell != -1) {
+                    diff[cell >>> 6] ^= 1L << cell;
+                }
+            }
+        }
+        for (int word = 0; word < diff.length; word++) {
+            for (long bits = diff[word]; bits != 0; bits &= bits - 1) {
+                int cell = word << 6 | Long.numberOfTrailingZeros(bits);
+                changed.add(new Coordinates(board.rowOf(cell), board.colOf(cell)));
+            }
+        }
+        return changed;
     }
 
     /**
      * check if this is a valid jump
+     * @param initial coordinate of the frog that jumps
      * @param move space the frog is jumping to
-     * @param jumped the space the frog has jumped
      * @return true if is a valid jump, false otherwise
      */
-    public  boolean validJump(Coordinates move, Coordinates jumped){
-        if(jumped != null && insideBounds(jumped.row(), jumped.col())){
-            return emptySpace(move) && greenFrog(jumped);
+    public  boolean validJump(Coordinates initial, Coordinates move){
+        int from = cellOf(initial);
+        int to = cellOf(move);
+        if(from == -1 || to == -1 || !occupied(from)){
+            return false;
         }
-        return false;
+        int over = board.jumpedCell(from, to);
+        return over != -1 && !occupied(to) && HoppersBoard.get(green, over);
     }
 
     /**
@@ -113,30 +390,10 @@ public class HoppersConfig implements Configuration{
      * @return true if coordinate inside bounds else false
      */
     public boolean insideBounds(int row, int column){
-        if(row >= this.row || row < 0){
+        if(row >= board.getRow() || row < 0){
             return false;
         }
-        return (column < this.column && column >= 0);
-    }
-
-    /**
-     * create a map for frog movement, key is the new position of the frog after it jumps and
-     * value is the position of the space the frog as jumped over
-     * @return map of coordinates for movement of a frog
-     */
-    public Map<Coordinates, Coordinates> makeMove(int row, int col){
-        Map<Coordinates,Coordinates> moves = new HashMap<>();
-        // diagonal coordinates
-        moves.put(new Coordinates(row+2,col+2),new Coordinates(row+1,col+1));
-        moves.put(new Coordinates(row-2,col-2),new Coordinates(row-1,col-1));
-        moves.put(new Coordinates(row-2,col+2),new Coordinates(row-1,col+1));
-        moves.put(new Coordinates(row+2,col-2),new Coordinates(row+1,col-1));
-        // horizontal and vertical coordinates
-        moves.put(new Coordinates(row,col+4), new Coordinates(row,col+2));
-        moves.put(new Coordinates(row,col-4), new Coordinates(row,col-2));
-        moves.put(new Coordinates(row-4,col),new Coordinates(row-2,col));
-        moves.put(new Coordinates(row+4,col), new Coordinates(row+2,col));
-        return moves;
+        return (column < board.getColumn() && column >= 0);
     }
 
     /**
@@ -145,7 +402,7 @@ public class HoppersConfig implements Configuration{
      * @return true if space is empty, false otherwise
      */
     public boolean emptySpace(Coordinates coordinate){
-        return board[coordinate.row()][coordinate.col()] == '.';
+        return getCell(coordinate.row(), coordinate.col()) == '.';
     }
 
     /**
@@ -154,7 +411,53 @@ public class HoppersConfig implements Configuration{
      * @return true if there is a green frog, false otherwise
      */
     public boolean greenFrog(Coordinates coordinate){
-        return board[coordinate.row()][coordinate.col()] == 'G';
+        return getCell(coordinate.row(), coordinate.col()) == 'G';
+    }
+
+    /**
+     * get what is on a space of the board
+     * @param r the row
+     * @param c the column
+     * @return 'R' or 'G' for a frog, '.' for an empty lily pad and '*' for water
+     */
+    public char getCell(int r, int c){
+        int cell = board.index(r, c);
+        if (cell == -1 || !board.isPlayable(cell)) {
+            return '*';
+        } else if (cell == red) {
+            return 'R';
+        }
+        return HoppersBoard.get(green, cell) ? 'G' : '.';
+    }
+
+    /**
+     * get the cell number of a coordinate
+     * @param coordinate the coordinate
+     * @return the cell number, -1 if no frog can stand there
+     */
+    private int cellOf(Coordinates coordinate){
+        return board.index(coordinate.row(), coordinate.col());
+    }
+
+    /**
+     * checks if a cell holds a frog of any colour
+     * @param cell the cell number
+     * @return true if there is a frog on the cell
+     */
+    private boolean occupied(int cell){
+        return cell == red || HoppersBoard.get(green, cell);
+    }
+
+    /**
+     * get amount of green frogs, which is also the length of every solution of this config
+     * @return amount of green frogs
+     */
+    public int countGreens(){
+        int count = 0;
+        for (long word : green) {
+            count += Long.bitCount(word);
+        }
+        return count;
     }
 
     /**
@@ -162,7 +465,7 @@ public class HoppersConfig implements Configuration{
      * @return amount of rows
      */
     public int getRow(){
-        return row;
+        return board.getRow();
     }
 
     /**
@@ -170,26 +473,63 @@ public class HoppersConfig implements Configuration{
      * @return amount of coloumns
      */
     public int getColumn(){
-        return column;
+        return board.getColumn();
     }
 
     /**
-     * get the 2d array representation of the hoppers board/ config
+     * get the shape of the board this config is on
      * @return the board
      */
-    public char[][] getBoard(){
+    public HoppersBoard getHoppersBoard(){
         return board;
     }
+
+    /**
+     * get the bitboard of the green frogs without copying it, for the solvers that look at
+     * every config. the array belongs to the config and must not be changed
+     * @return the bitboard over the cells of the board
+     */
+    public long[] getGreen(){
+        return green;
+    }
+
+    /**
+     * get the cell of the red frog
+     * @return the cell number, -1 if there is none
+     */
+    public int getRed(){
+        return red;
+    }
+
+    /**
+     * get the 2d array representation of the hoppers board/ config.
+     * the array is built on every call, use {@link #getCell(int, int)} for single spaces
+     * @return the board
+     */
+    public char[][] getBoard(){
+        char[][] cells = new char[board.getRow()][board.getColumn()];
+        for(int r = 0; r< board.getRow(); r++){
+            for (int c = 0; c< board.getColumn(); c++){
+                cells[r][c] = getCell(r, c);
+            }
+        }
+        return cells;
+    }
+
     /**
      * gets the hashcode of this configuration
      * @return an integer representing the hashcode
      */
     @Override
     public int hashCode(){
-        int hash = 0;
-        for (Coordinates coord: frogCoordinates) {
-            hash+=coord.hashCode();
-        }
+        return Long.hashCode(hash);
+    }
+
+    /**
+     * get the 64 bit zobrist hash of this configuration, it is kept up to date with every jump
+     * @return the hash
+     */
+    public long zobrist(){
         return hash;
     }
 
@@ -201,7 +541,8 @@ public class HoppersConfig implements Configuration{
     @Override
     public boolean equals(Object other){
         if (other instanceof HoppersConfig){
-            return Arrays.deepEquals(this.board, ((HoppersConfig) other).board);
+            HoppersConfig that = (HoppersConfig) other;
+            return this.hash == that.hash && this.red == that.red && Arrays.equals(this.green, that.green);
         }
         return false;
     }
@@ -212,16 +553,130 @@ public class HoppersConfig implements Configuration{
      */
     @Override
     public boolean isSolution() {
-        for(int r = 0; r<row; r++){
-            for(int c = 0; c<column; c++){
-                if(this.board[r][c] == 'G'){
-                    return false;
-                }
+        for (long word : green) {
+            if (word != 0) {
+                return false;
             }
         }
         return true;
     }
 
+    /**
+     * a config can be packed into a long if the green frogs fit into the low bits
+     * and the red frog's cell number fits into the bits above them
+     * @return true if the board is small enough
+     */
+    @Override
+    public boolean isEncodable() {
+        int cells = board.getCells();
+        return cells + 64 - Long.numberOfLeadingZeros(cells) <= 63;
+    }
+
+    /**
+     * pack the config, the green bitboard is in the low bits and the red frog's
+     * cell number plus one above them
+     * @return the code
+     */
+    @Override
+    public long encode() {
+        return green[0] | (long) (red + 1) << board.getCells();
+    }
+
+    /**
+     * unpack a code made by {@link #encode()}
+     * @param code the code
+     * @return the config on the same board
+     */
+    @Override
+    public Configuration decode(long code) {
+        int cells = board.getCells();
+        long[] frogs = {code & ((1L << cells) - 1)};
+        return new HoppersConfig(board, frogs, (int) (code >>> cells) - 1);
+    }
+
+    /**
+     * get the same config under the symmetry of the board that gives the smallest frogs,
+     * comparing the red frog first and then the green bitboard from its highest word down
+     * @return the representative of all the configs that are rotations or mirrors of this one
+     */
+    @Override
+    public Configuration canonical() {
+        int[][] symmetries = board.getSymmetries();
+        HoppersConfig best = this;
+        for (int s = 1; s < symmetries.length; s++) {
+            HoppersConfig image = transform(symmetries[s]);
+            if (image.compareFrogs(best) < 0) {
+                best = image;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * move every frog of this config by a cell permutation
+     * @param permutation the new cell of each cell
+     * @return the moved config
+     */
+    private HoppersConfig transform(int[] permutation) {
+        long[] frogs = board.newBitboard();
+        for (int word = 0; word < green.length; word++) {
+            for (long bits = green[word]; bits != 0; bits &= bits - 1) {
+                HoppersBoard.set(frogs, permutation[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+        return new HoppersConfig(board, frogs, red == -1 ? -1 : permutation[red]);
+    }
+
+    /**
+     * order configs of the same board by their frogs
+     * @param other the other config
+     * @return negative, zero or positive if this config is smaller, equal or bigger
+     */
+    private int compareFrogs(HoppersConfig other) {
+        if (red != other.red) {
+            return Integer.compare(red, other.red);
+        }
+        for (int word = green.length - 1; word >= 0; word--) {
+            if (green[word] != other.green[word]) {
+                return Long.compareUnsigned(green[word], other.green[word]);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * get amount of longs {@link #writeKey(long[], int)} writes, the green bitboard and the red frog
+     * @return the key width
+     */
+    @Override
+    public int keyWidth() {
+        return green.length + 1;
+    }
+
+    /**
+     * write a key that identifies this config among the configs of its puzzle,
+     * used to remember configs without keeping the config objects
+     * @param key array the key is written to
+     * @param offset index the key starts at
+     */
+    @Override
+    public void writeKey(long[] key, int offset) {
+        System.arraycopy(green, 0, key, offset, green.length);
+        key[offset + green.length] = red;
+    }
+
+    /**
+     * read a key made by {@link #writeKey(long[], int)}
+     * @param key array holding the key
+     * @param offset index the key starts at
+     * @return the config on the same board
+     */
+    @Override
+    public Configuration readKey(long[] key, int offset) {
+        long[] frogs = Arrays.copyOfRange(key, offset, offset + green.length);
+        return new HoppersConfig(board, frogs, (int) key[offset + green.length]);
+    }
+
     /**
      * get the neighbors of the current config
      * @return list of neighbors
@@ -229,25 +684,113 @@ public class HoppersConfig implements Configuration{
     @Override
     public Collection<Configuration> getNeighbors() {
         List<Configuration> neighbor = new ArrayList<>();
-        for (Coordinates frog:frogCoordinates) {
-            char ch = this.board[frog.row()][frog.col()];
-            // create map of all possible movements a frog can make
-            Map<Coordinates,Coordinates> coordinates = makeMove(frog.row(), frog.col());
-            for (Coordinates coord : coordinates.keySet()) {
-                if(insideBounds(coord.row(),coord.col()) && emptySpace(coord) && greenFrog(coordinates.get(coord))){
-                    neighbor.add(new HoppersConfig(this, ch, coord, coordinates.get(coord), frog));
-                }
+        // frogs are visited in row-major order, which is the order of the cell numbers
+        for (int word = 0; word < green.length; word++) {
+            for (long frogs = frogs(word); frogs != 0; frogs &= frogs - 1) {
+                int from = (word << 6) + Long.numberOfTrailingZeros(frogs);
+                addJumps(neighbor, from);
             }
         }
         return neighbor;
     }
+
+    /**
+     * get the neighbors one at a time, each one is only built when the iteration gets to it
+     * @return the neighbors in the order of {@link #getNeighbors()}
+     */
+    @Override
+    public Iterable<Configuration> successors() {
+        return Successors::new;
+    }
+
+    /**
+     * get the frogs of any colour in a word of the bitboard
+     * @param word index of the word
+     * @return bitboard word of the cells that hold a frog
+     */
+    private long frogs(int word) {
+        long frogs = green[word];
+        if (red != -1 && red >>> 6 == word) {
+            frogs |= 1L << red;
+        }
+        return frogs;
+    }
+
+    /**
+     * add a config for every jump the frog on a cell can make
+     * @param neighbor the list of neighbors
+     * @param from the cell of the frog
+     */
+    private void addJumps(List<Configuration> neighbor, int from) {
+        for (int jump = board.firstJump(from); jump < board.lastJump(from); jump++) {
+            int to = board.landing(jump);
+            int over = board.jumped(jump);
+            if (!occupied(to) && HoppersBoard.get(green, over)) {
+                neighbor.add(new HoppersConfig(this, from, over, to));
+            }
+        }
+    }
+
+    /**
+     * goes through the jumps of the frogs in the same order as getNeighbors, but only
+     * builds the config of a jump when it is asked for
+     */
+    private class Successors implements Iterator<Configuration> {
+        /** index of the bitboard word the frogs are taken from */
+        private int word = -1;
+        /** the frogs of the word that are not visited yet */
+        private long frogs;
+        /** the cell of the frog that is jumping */
+        private int from;
+        /** the next jump of the frog to try */
+        private int jump;
+        /** the end of the jumps of the frog */
+        private int end;
+        /** the next neighbor, null if it was not found yet */
+        private HoppersConfig next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (jump < end) {
+                    int to = board.landing(jump);
+                    int over = board.jumped(jump);
+                    jump++;
+                    if (!occupied(to) && HoppersBoard.get(green, over)) {
+                        next = new HoppersConfig(HoppersConfig.this, from, over, to);
+                    }
+                } else if (frogs != 0) {
+                    from = (word << 6) + Long.numberOfTrailingZeros(frogs);
+                    frogs &= frogs - 1;
+                    jump = board.firstJump(from);
+                    end = board.lastJump(from);
+                } else if (++word < green.length) {
+                    frogs = frogs(word);
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Configuration next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            HoppersConfig found = next;
+            next = null;
+            return found;
+        }
+    }
+
     @Override
     public String toString(){
         StringBuilder string  = new StringBuilder();
-        for(int r =0; r<row; r++){
+        for(int r =0; r<board.getRow(); r++){
             string.append(System.lineSeparator());
-            for(int c = 0; c<column;c++){
-                string.append(this.board[r][c]);
+            for(int c = 0; c<board.getColumn();c++){
+                string.append(getCell(r, c));
                 string.append(" ");
             }
         }
@@ -1,31 +1,77 @@
 package puzzles.hoppers.model;
 
+import puzzles.common.CoalescingDispatcher;
 import puzzles.common.Coordinates;
 import puzzles.common.Observer;
 import puzzles.common.solver.Configuration;
-import puzzles.common.solver.Solver;
+import puzzles.hoppers.solver.HoppersDFSSolver;
+import puzzles.hoppers.solver.HoppersDatabase;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * the model class of the hoppers
+ * the model class of the hoppers.
+ * every time the board changes the model starts solving the new config on a background thread,
+ * so a hint is usually ready before it is asked for. the solutions are cached by config and a
+ * solve that is still running for an old config is cancelled. results that come in from the
+ * background are passed to the observers on the callback executor, if there is none a hint
+ * waits for its solve instead.
+ * with every event the model also keeps which spaces of the board it changed, so a view only
+ * has to redraw those, see {@link #getChangedCells()}.
+ * every jump, by the player or by a hint, goes into a history of {@link HoppersMove}s that can be
+ * undone and redone one move at a time, so going back some moves costs as much as that amount
+ * of moves. a reset goes back to the start of the history instead of reading the file again.
+ * the solutions are cached by config, so a hint after an undo is given from the cache.
+ * an observer is either told about every event right away, or on an executor of its own where
+ * events that come in while it is busy are merged into the newest one, see
+ * {@link #addObserver(Observer, Executor)}.
  * @author Jonathan Luo
  */
 public class HoppersModel {
+    /** amount of solutions kept in the cache */
+    private static final int CACHE_SIZE = 64;
+
     /** the collection of observers of this model */
     private final List<Observer<HoppersModel, String>> observers = new LinkedList<>();
 
-    /** the current configuration */
-    private HoppersConfig currentConfig;
+    /** the current configuration, observers on other threads read it */
+    private volatile HoppersConfig currentConfig;
     /** the current file of the hopper */
     private String currentFile;
+    /** the config of the file, where the history starts */
+    private HoppersConfig startConfig;
+    /** the moves made since the start, the ones from the position on have been undone */
+    private final List<HoppersMove> history = new ArrayList<>();
+    /** amount of moves of the history that are on the board */
+    private int position;
     /** a list of selected coordinates */
     private final List<Coordinates> selected = new ArrayList<>();
+    /** the spaces the last event changed, null if the board got another size */
+    private volatile List<Coordinates> changedCells = List.of();
+    /** the thread the configs are solved on in the background */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hoppers-solver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** the solution paths of the configs solved last, least recently used first */
+    private final Map<HoppersConfig, List<Configuration>> solved = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<HoppersConfig, List<Configuration>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    /** the config that is being solved in the background */
+    private HoppersConfig pendingConfig;
+    /** the solve running in the background */
+    private Future<?> pending;
+    /** the config a hint is waiting for, null if no hint is waiting */
+    private HoppersConfig waitingHint;
+    /** the executor observers are told about background results on, null to wait for them */
+    private Executor callbackExecutor;
 
     /**
      * The view calls this to add itself as an observer.
@@ -35,6 +81,32 @@ public class HoppersModel {
         this.observers.add(observer);
     }
 
+    /**
+     * add an observer that is told about the events on its own executor, like the javafx
+     * thread, so the model does not wait for it. while it is busy the events are merged and it
+     * only gets the newest one, so it should read the state of the model when it is told, and
+     * compare the config with the one it saw last instead of using {@link #getChangedCells()},
+     * which only holds the changes of the newest event
+     * @param observer the observer
+     * @param executor where the observer is told about the events
+     * @return the dispatcher the observer is told through
+     */
+    public CoalescingDispatcher<HoppersModel, String> addObserver(Observer<HoppersModel, String> observer,
+                                                                 Executor executor) {
+        CoalescingDispatcher<HoppersModel, String> dispatcher = new CoalescingDispatcher<>(observer, executor);
+        this.observers.add(dispatcher);
+        return dispatcher;
+    }
+
+    /**
+     * set the executor observers are told about results of background solves on, like the
+     * javafx thread. without one a hint waits until its solve is done
+     * @param callbackExecutor the executor, null to wait for the solves
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
     /**
      * get the current config of the model
      * @return hopper config
@@ -67,11 +139,48 @@ public class HoppersModel {
         return this.currentFile;
     }
 
+    /**
+     * get amount of moves in the history, including the ones that have been undone
+     * @return amount of moves
+     */
+    public int getHistorySize(){
+        return this.history.size();
+    }
+
+    /**
+     * get amount of moves of the history that are on the board
+     * @return the position in the history, 0 at the start
+     */
+    public int getHistoryPosition(){
+        return this.position;
+    }
+
+    /**
+     * get the spaces of the board the last event changed. after a jump those are where the frog
+     * was, the frog it jumped and where it landed, after a load or reset every space that is
+     * different from the board before
+     * @return the spaces in row major order, empty if the board did not change and null if
+     * the board has another size than before
+     */
+    public List<Coordinates> getChangedCells(){
+        return this.changedCells;
+    }
+
     /**
      * The model's state has changed (the counter), so inform the view via
      * the update method
      */
     private void alertObservers(String msg) {
+        alertObservers(msg, currentConfig);
+    }
+
+    /**
+     * inform the views of an event that may have changed the board
+     * @param msg the message of the event
+     * @param before the config before the event
+     */
+    private void alertObservers(String msg, HoppersConfig before) {
+        changedCells = before == currentConfig ? List.of() : currentConfig.changedCells(before);
         for (var observer : observers) {
             observer.update(this, msg);
         }
@@ -86,18 +195,19 @@ public class HoppersModel {
         // add row and col as a coordinate to selected
         selected.add(new Coordinates(row,col));
         Coordinates initial = selected.get(0);  // first coordinate is the initial position of the frog
-        char ch = currentConfig.getBoard()[initial.row()][initial.col()];   // get the char of said frog, can be G or R
+        char ch = currentConfig.getCell(initial.row(), initial.col());   // get the char of said frog, can be G or R
         // if selected has 2 coordinates, user wants to make a frog jump
         if(selected.size() ==2){
             Coordinates move = selected.get(1); // second coordinate is where the frog is jumping to
-            // make the move and get the coordinate of the jumped position
-            Coordinates jumped  = currentConfig.makeMove(initial.row(),initial.col()).get(move);
-            if(currentConfig.validJump(move,jumped)){
+            // check the jump against the board's jump table
+            if(currentConfig.validJump(initial, move)){
                 // if the jump is valid then make a Hoppers config with that change
-                currentConfig = currentConfig.makeJump(ch, move,jumped,initial);
+                HoppersConfig before = currentConfig;
+                currentConfig = record(currentConfig.moveOf(initial, move));
+                speculate();
                 // alert the observer of a change
                 alertObservers("Jumped from ("+initial.row()+", "+initial.col()+") " +
-                        "to ("+move.row()+", "+move.col()+")");
+                        "to ("+move.row()+", "+move.col()+")", before);
                 // remove everything in selected list
                 selected.removeAll(selected);
             }else {
@@ -120,31 +230,161 @@ public class HoppersModel {
     }
 
     /**
-     * reset the board
+     * make a move and put it in the history, the moves that were undone are dropped
+     * @param move the move
+     * @return the config after the move
+     */
+    private HoppersConfig record(HoppersMove move){
+        history.subList(position, history.size()).clear();
+        history.add(move);
+        position++;
+        return currentConfig.apply(move);
+    }
+
+    /**
+     * reset the board, by undoing every move of the history so they can still be redone
      */
     public void reset(){
-        try {
-            // set the current config to a new hoppers config of the same file
-            currentConfig = new HoppersConfig(currentFile);
-            alertObservers("Puzzle reset!");
-        }catch (IOException ioe){
-            System.out.println(ioe.getMessage());
+        HoppersConfig before = currentConfig;
+        currentConfig = startConfig;
+        position = 0;
+        speculate();
+        alertObservers("Puzzle reset!", before);
+    }
+
+    /**
+     * take the last move on the board back
+     */
+    public void undo(){
+        if (position == 0) {
+            alertObservers("Nothing to undo!");
+        } else {
+            goTo(position - 1, "Undo!");
         }
     }
 
+    /**
+     * make the last undone move again
+     */
+    public void redo(){
+        if (position == history.size()) {
+            alertObservers("Nothing to redo!");
+        } else {
+            goTo(position + 1, "Redo!");
+        }
+    }
+
+    /**
+     * undo or redo moves until a position of the history is on the board
+     * @param target the position, from 0 for the start to the size of the history
+     */
+    public void goTo(int target){
+        if (target < 0 || target > history.size()) {
+            alertObservers("No move " + target + " in the history!");
+        } else {
+            goTo(target, "Moved to " + target + " of " + history.size() + "!");
+        }
+    }
+
+    /**
+     * undo or redo moves one at a time until a position of the history is on the board
+     * @param target the position, it must be in the history
+     * @param msg the message for the observers
+     */
+    private void goTo(int target, String msg){
+        HoppersConfig before = currentConfig;
+        HoppersConfig config = currentConfig;
+        for (; position > target; position--) {
+            config = config.revert(history.get(position - 1));
+        }
+        for (; position < target; position++) {
+            config = config.apply(history.get(position));
+        }
+        currentConfig = config;
+        selected.clear();
+        speculate();
+        alertObservers(msg, before);
+    }
+
     /**
      * give user a hint by making the next move on the board
      */
     public void hint(){
-        // construct a path of configuration
-        List<Configuration> path = solve();
-        // if the current config has a solution
-        if(path.contains(currentConfig)){
+        // a database of the board knows the next jump without searching
+        HoppersDatabase database = HoppersDatabase.of(currentConfig.getHoppersBoard());
+        if(database != null && database.covers(currentConfig)){
+            if(currentConfig.isSolution()){
+                alertObservers("Already solved!");
+            }else if(database.isSolvable(currentConfig)){
+                HoppersConfig before = currentConfig;
+                currentConfig = record(currentConfig.moveTo(database.next(currentConfig)));
+                alertObservers("Next Step!", before);
+            }else{
+                alertObservers("No Solution!");
+            }
+            return;
+        }
+        HoppersConfig config = currentConfig;
+        List<Configuration> path;
+        synchronized (solved) {
+            path = solved.get(config);
+            if (path == null && callbackExecutor != null) {
+                // the background solve gives the hint when it is done
+                waitingHint = config;
+                speculate();
+            }
+        }
+        if (path == null && callbackExecutor != null) {
+            alertObservers("Solving...");
+            return;
+        }
+        if (path == null) {
+            path = await(config);
+            if (path == null) {
+                return;
+            }
+        }
+        giveHint(path);
+    }
+
+    /**
+     * wait for the background solve of a config
+     * @param config the config
+     * @return the path of the config, null if the wait was interrupted
+     */
+    private List<Configuration> await(HoppersConfig config) {
+        speculate();
+        try {
+            pending.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            // solve it here instead
+        }
+        List<Configuration> path;
+        synchronized (solved) {
+            path = solved.get(config);
+        }
+        return path != null ? path : solve(config);
+    }
+
+    /**
+     * make the next move of a solution path
+     * @param path the path from the current config
+     */
+    private void giveHint(List<Configuration> path){
+        // the path starts at the current config if it has a solution
+        if(!path.isEmpty()){
             // if it's solution is not itself
             if(path.size() > 1){
-                Configuration next = path.remove(1);
-                currentConfig = (HoppersConfig) next;
-                alertObservers("Next Step!");
+                HoppersConfig before = currentConfig;
+                currentConfig = record(currentConfig.moveTo((HoppersConfig) path.get(1)));
+                // the rest of the path is the solution of the next config
+                synchronized (solved) {
+                    solved.put(currentConfig, new ArrayList<>(path.subList(1, path.size())));
+                }
+                alertObservers("Next Step!", before);
             }else{
                 // the config is already solution
                 alertObservers("Already solved!");
@@ -166,10 +406,15 @@ public class HoppersModel {
             // set the current file to the new file that is being loaded
             this.currentFile = file.toString();
             // create a new config with new file
+            HoppersConfig before = this.currentConfig;
             this.currentConfig = new HoppersConfig(currentFile);
+            this.startConfig = this.currentConfig;
+            history.clear();
+            position = 0;
+            speculate();
             String[] loaded = file.toString().split("\\\\");
             // alert observer that a new file is loaded and the models config changes
-            alertObservers("Loaded: " + loaded[loaded.length -1]);
+            alertObservers("Loaded: " + loaded[loaded.length -1], before);
         }catch (IOException ioe){
             // not a valid file, alert observer
             alertObservers("Failed ot load:" + file);
@@ -181,8 +426,64 @@ public class HoppersModel {
      * @return path of the solved configuation
      */
     public List<Configuration> solve(){
-        Solver sol = new Solver(currentConfig);
-        return sol.constructPath(currentConfig, sol.getSolution());
+        return solve(currentConfig);
+    }
+
+    /**
+     * solve a configuration
+     * @param config the configuration
+     * @return path of the solved configuation, empty if there is no solution
+     */
+    private static List<Configuration> solve(HoppersConfig config){
+        HoppersDFSSolver sol = new HoppersDFSSolver(config);
+        return sol.constructPath(config, sol.getSolution());
+    }
+
+    /**
+     * start solving the current config in the background unless its solution is known or
+     * it is being solved already, a solve of an older config is cancelled. every change of the
+     * board comes through here, so a hint that waits for another config is dropped
+     */
+    private void speculate(){
+        HoppersConfig config = currentConfig;
+        synchronized (solved) {
+            // the user moved on, coming back to the config later must not make the jump for them
+            if (!config.equals(waitingHint)) {
+                waitingHint = null;
+            }
+        }
+        HoppersDatabase database = HoppersDatabase.of(config.getHoppersBoard());
+        if (database != null && database.covers(config)) {
+            return;
+        }
+        synchronized (solved) {
+            if (solved.containsKey(config) || config.equals(pendingConfig) && !pending.isDone()) {
+                return;
+            }
+            if (pending != null) {
+                pending.cancel(true);
+            }
+            pendingConfig = config;
+            pending = worker.submit(() -> {
+                List<Configuration> path = solve(config);
+                boolean hint;
+                synchronized (solved) {
+                    solved.put(config, path);
+                    hint = config.equals(waitingHint);
+                    if (hint) {
+                        waitingHint = null;
+                    }
+                }
+                if (hint && callbackExecutor != null) {
+                    callbackExecutor.execute(() -> {
+                        // the board may have changed while the hint was on its way
+                        if (config.equals(currentConfig)) {
+                            giveHint(path);
+                        }
+                    });
+                }
+            });
+        }
     }
 
     /**
@@ -192,6 +493,8 @@ public class HoppersModel {
      */
     public HoppersModel(String filename) throws IOException {
         this.currentConfig = new HoppersConfig(filename);
+        this.startConfig = this.currentConfig;
         this.currentFile = filename;
+        speculate();
     }
 }
@@ -0,0 +1,15 @@
+package puzzles.hoppers.model;
+
+/**
+ * a jump as the change it makes to the board: the cell the frog leaves, the cell of the green
+ * frog it jumps over and the cell it lands on, as cell numbers of the {@link HoppersBoard}.
+ * a config can be moved forward and back by a move, see {@link HoppersConfig#apply(HoppersMove)}
+ * and {@link HoppersConfig#revert(HoppersMove)}, so a history of moves is a few ints per jump.
+ * @param from cell number the frog jumps from
+ * @param over cell number of the green frog that gets jumped
+ * @param to cell number the frog lands on
+ * @param piece the frog that jumps, 'R' or 'G'
+ * @author Jonathan Luo
+ */
+public record HoppersMove(int from, int over, int to, char piece) {
+}
@@ -58,6 +58,28 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
         model.reset();
     }
 
+    /**
+     * undo that calls the model's undo method
+     */
+    public void undo(){
+        model.undo();
+    }
+
+    /**
+     * redo that calls the model's redo method
+     */
+    public void redo(){
+        model.redo();
+    }
+
+    /**
+     * go to a move of the history by calling the model's goTo method
+     * @param move the amount of moves from the start
+     */
+    public void goTo(int move){
+        model.goTo(move);
+    }
+
     /**
      * update the model and prints the data and display the board
      * @param model the object that wishes to inform this object
@@ -89,7 +111,7 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
         for(int r =0; r<hopper.getRow(); r++){
             board.append(System.lineSeparator()).append(r).append("| ");
             for(int c = 0; c<hopper.getColumn();c++){
-                board.append(hopper.getBoard()[r][c]);
+                board.append(hopper.getCell(r, c));
                 board.append(" ");
             }
         }
@@ -106,6 +128,9 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
         System.out.println( "s(elect) r c        -- select cell at r, c" );
         System.out.println( "q(uit)              -- quit the game" );
         System.out.println( "r(eset)             -- reset the current game" );
+        System.out.println( "u(ndo)              -- undo the last move" );
+        System.out.println( "redo                -- redo the last undone move" );
+        System.out.println( "g(oto) n            -- go to move n of the history" );
     }
 
     /**
@@ -124,8 +149,14 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
                     select(Integer.parseInt(words[1]),Integer.parseInt(words[2]));
                 }if ( words[0].startsWith("h")){
                     hint();
-                }if ( words[0].startsWith("r")){
+                }if ( words[0].startsWith("r") && !words[0].startsWith("red")){
                     reset();
+                }if ( words[0].startsWith("red")){
+                    redo();
+                }if ( words[0].startsWith("u")){
+                    undo();
+                }if ( words[0].startsWith("g") && words.length > 1){
+                    goTo(Integer.parseInt(words[1]));
                 }if(words[0].startsWith("l")){
                     load(words[1]);
                 }
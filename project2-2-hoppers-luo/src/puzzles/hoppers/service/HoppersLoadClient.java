@@ -0,0 +1,180 @@
+package puzzles.hoppers.service;
+
+import puzzles.hoppers.model.HoppersBundle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * puts load on a {@link HoppersService} and reports what the clients saw: throughput, failed
+ * requests and latency percentiles, then the stats of the service itself. every client thread
+ * sends its requests one after another, each for a puzzle picked at random, so the same puzzles
+ * come again and the cache and the coalescing get used.
+ * <pre>
+ *     java puzzles.hoppers.service.HoppersLoadClient [--url url] [-c clients] [-n requests]
+ *                                                    [--hint-ratio ratio] [--seed seed]
+ *                                                    file, directory or bundle...
+ * </pre>
+ * a directory stands for the .txt files in it and a {@link HoppersBundle} file for all the
+ * puzzles in it. without puzzles the ones in data/hoppers are used.
+ * @author Jonathan Luo
+ */
+public class HoppersLoadClient {
+    /** the address of the service */
+    private String url = "http://localhost:8080";
+    /** amount of clients sending at the same time */
+    private int clients = 8;
+    /** amount of requests sent by all the clients together */
+    private int requests = 1000;
+    /** the share of the requests that ask for a hint instead of a solve */
+    private double hintRatio = 0.5;
+    /** the seed the puzzles and the kinds of the requests are picked with */
+    private long seed = 1;
+    /** the puzzle files to send */
+    private final List<byte[]> puzzles = new ArrayList<>();
+    /** amount of requests that got an error or no answer */
+    private final LongAdder failures = new LongAdder();
+    /** the latencies the clients saw */
+    private LatencyRecorder latency;
+
+    /**
+     * add the puzzles an argument stands for
+     * @param arg a puzzle file, a directory of puzzle files or a bundle
+     * @throws IOException if a puzzle can't be read
+     */
+    private void add(String arg) throws IOException {
+        Path path = Path.of(arg);
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> listed = Files.list(path)) {
+                for (Path file : (Iterable<Path>) listed.filter(p -> p.toString().endsWith(".txt")).sorted()::iterator) {
+                    puzzles.add(Files.readAllBytes(file));
+                }
+            }
+        } else if (arg.endsWith(HoppersBundle.EXTENSION)) {
+            HoppersBundle bundle = new HoppersBundle(path);
+            for (int i = 0; i < bundle.size(); i++) {
+                puzzles.add(HoppersBundle.toText(bundle.get(i)).getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
+            puzzles.add(Files.readAllBytes(path));
+        }
+    }
+
+    /**
+     * send a request and read the whole answer
+     * @param path the path of the request
+     * @param body the body, null for a get
+     * @return the answer
+     * @throws IOException if the request fails or is not answered with 200
+     */
+    private String send(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+        try {
+            if (body != null) {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            String answer = in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (status != 200) {
+                throw new IOException(status + " " + answer.strip());
+            }
+            return answer;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * send the requests of one client
+     * @param client number of the client
+     * @param count amount of requests it sends
+     */
+    private void client(int client, int count) {
+        SplittableRandom random = new SplittableRandom(seed + client);
+        for (int i = 0; i < count; i++) {
+            byte[] puzzle = puzzles.get(random.nextInt(puzzles.size()));
+            String path = random.nextDouble() < hintRatio ? "/hint" : "/solve";
+            long begin = System.nanoTime();
+            try {
+                send(path, puzzle);
+            } catch (IOException e) {
+                failures.increment();
+            }
+            latency.record(System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * send every request and print the summary
+     * @throws IOException if the stats of the service can't be fetched
+     * @throws InterruptedException if interrupted while the clients run
+     */
+    private void run() throws IOException, InterruptedException {
+        latency = new LatencyRecorder(requests);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long begin = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            // the first clients send one more when the requests don't split evenly
+            int count = requests / clients + (c < requests % clients ? 1 : 0);
+            int client = c;
+            pool.execute(() -> client(client, count));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf(Locale.ROOT, "{\"clients\":%d,\"requests\":%d,\"failures\":%d,\"seconds\":%.3f,"
+                        + "\"requestsPerSecond\":%.1f,%s}%n",
+                clients, requests, failures.sum(), seconds, requests / seconds, latency.toJson());
+        System.out.print(send("/stats", null));
+    }
+
+    /**
+     * run the load
+     * @param args the options and puzzles
+     * @throws IOException if a puzzle can't be read or the service can't be reached
+     * @throws InterruptedException if interrupted while the clients run
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        HoppersLoadClient load = new HoppersLoadClient();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> load.url = args[++i].replaceFirst("/+$", "");
+                case "-c", "--clients" -> load.clients = Integer.parseInt(args[++i]);
+                case "-n", "--requests" -> load.requests = Integer.parseInt(args[++i]);
+                case "--hint-ratio" -> load.hintRatio = Double.parseDouble(args[++i]);
+                case "--seed" -> load.seed = Long.parseLong(args[++i]);
+                case "-h", "--help" -> {
+                    System.out.println("Usage: java HoppersLoadClient [--url url] [-c clients] [-n requests] "
+                            + "[--hint-ratio ratio] [--seed seed] [file, directory or bundle]...");
+                    return;
+                }
+                default -> paths.add(args[i]);
+            }
+        }
+        for (String path : paths.isEmpty() ? List.of("data/hoppers") : paths) {
+            load.add(path);
+        }
+        if (load.puzzles.isEmpty() || load.clients < 1 || load.requests < 1) {
+            System.out.println("nothing to send");
+            return;
+        }
+        load.run();
+    }
+}
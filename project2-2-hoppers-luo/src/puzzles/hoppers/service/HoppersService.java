@@ -0,0 +1,378 @@
+package puzzles.hoppers.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import puzzles.common.solver.BeamSearch;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverOptions;
+import puzzles.hoppers.model.HoppersBundle;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.solver.Hoppers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a solver service on localhost, so the sessions of a front end share their solves instead of
+ * each solving the same puzzles again. it speaks plain http:
+ * <pre>
+ *     POST /solve   body is a puzzle file, answers "solved STEPS" and every step as a puzzle file,
+ *                   "unsolvable", or "unknown" if a beam search found no solution but may have
+ *                   missed one
+ *     POST /hint    body is a puzzle file, answers "hint" and the next step as a puzzle file,
+ *                   "solved" if it is solved already, "unsolvable" or "unknown"
+ *     GET  /stats   counters, cache hit rate, queue depth and latency percentiles as json
+ * </pre>
+ * the puzzles are solved by their canonical config, so rotated and mirrored puzzles are one
+ * solve. requests for a config that is being solved wait for that solve instead of starting
+ * another, and finished paths go into a cache that drops the least recently used one when it is
+ * full. the paths of the cache are canonical, each request plays one forward on its own
+ * orientation, see {@link Solver#unfold(Configuration, List)}. an unknown answer is not cached,
+ * a later request solves again.
+ * a solve that takes longer than the timeout is interrupted, so it gives its thread back, and
+ * without --max-states a solve may remember at most {@value #DEFAULT_MAX_STATES} states, so a
+ * few huge boards can't take all the threads or the heap. request bodies are limited to
+ * {@value #MAX_BODY} bytes.
+ * <pre>
+ *     java puzzles.hoppers.service.HoppersService [-p port] [-j solvers] [--cache size]
+ *                                                 [--timeout seconds] [solver options] [--dfs]
+ * </pre>
+ * @author Jonathan Luo
+ */
+public class HoppersService {
+    /** amount of latency samples the percentiles are taken over */
+    private static final int LATENCY_SAMPLES = 16384;
+    /** the most states a solve may remember when --max-states is not given */
+    public static final long DEFAULT_MAX_STATES = 2_000_000;
+    /** the most bytes a request body may have, a puzzle file is far smaller */
+    private static final int MAX_BODY = 1 << 16;
+
+    /** the options every puzzle is solved with */
+    private final SolverOptions options;
+    /** the longest a request waits for its solve */
+    private final long timeoutMillis;
+    /** the most paths the cache keeps */
+    private final int cacheSize;
+    /** the threads the solves run on */
+    private final ThreadPoolExecutor solvers;
+    /** the threads the requests are handled on, they mostly wait for solves */
+    private final ExecutorService handlers = Executors.newCachedThreadPool(daemon("hoppers-service"));
+    /** cancels the solves that run out of time */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemon("hoppers-timer"));
+    /** the canonical solution path of each canonical config solved last, least recently used first */
+    private final Map<HoppersConfig, List<Configuration>> cache;
+    /** the solves that are running, by canonical config */
+    private final Map<HoppersConfig, CompletableFuture<List<Configuration>>> inFlight = new ConcurrentHashMap<>();
+    /** amount of requests */
+    private final LongAdder requests = new LongAdder();
+    /** amount of requests answered from the cache */
+    private final LongAdder hits = new LongAdder();
+    /** amount of requests that joined a running solve */
+    private final LongAdder coalesced = new LongAdder();
+    /** amount of solves started */
+    private final LongAdder solves = new LongAdder();
+    /** amount of requests that failed */
+    private final LongAdder errors = new LongAdder();
+    /** the latencies of the requests */
+    private final LatencyRecorder latency = new LatencyRecorder(LATENCY_SAMPLES);
+    /** the http server, null until started */
+    private HttpServer server;
+
+    /**
+     * create a service
+     * @param options the options every puzzle is solved with
+     * @param threads amount of puzzles solved at the same time
+     * @param cacheSize the most paths the cache keeps
+     * @param timeoutMillis the longest a request waits for its solve
+     */
+    public HoppersService(SolverOptions options, int threads, int cacheSize, long timeoutMillis) {
+        this.options = options;
+        this.cacheSize = cacheSize;
+        this.timeoutMillis = timeoutMillis;
+        this.solvers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemon("hoppers-solver"));
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HoppersConfig, List<Configuration>> eldest) {
+                return size() > HoppersService.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * a factory of daemon threads
+     * @param name name of the threads
+     * @return the factory
+     */
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * start serving on localhost
+     * @param port the port, 0 for any free one
+     * @return the port the service listens on
+     * @throws IOException if the port can't be bound
+     */
+    public int start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/solve", exchange -> handle(exchange, false));
+        server.createContext("/hint", exchange -> handle(exchange, true));
+        server.createContext("/stats", exchange -> reply(exchange, 200, stats()));
+        server.setExecutor(handlers);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * stop serving, the running solves are dropped
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        solvers.shutdownNow();
+        handlers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * get the canonical solution path of a canonical config, from the cache, from a solve that
+     * is running or from a new solve
+     * @param key the canonical config
+     * @return the path, empty if there is none, null if the beam search found none but may have
+     * missed one, it finishes when the solve does. it is cancelled when the solve takes longer
+     * than the timeout
+     */
+    private CompletableFuture<List<Configuration>> path(HoppersConfig key) {
+        List<Configuration> cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<List<Configuration>> created = new CompletableFuture<>();
+        CompletableFuture<List<Configuration>> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            coalesced.increment();
+            return running;
+        }
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            // it was solved between the two looks at the cache
+            inFlight.remove(key, created);
+            hits.increment();
+            created.complete(cached);
+            return created;
+        }
+        solves.increment();
+        Future<?> task = solvers.submit(() -> {
+            try {
+                PuzzleSolver solver = Hoppers.solve(key, options);
+                List<Configuration> path = new ArrayList<>();
+                for (Configuration step : solver.constructPath(key, solver.getSolution())) {
+                    path.add(step.canonical());
+                }
+                if (path.isEmpty() && solver instanceof BeamSearch beam && !beam.isExhaustive()) {
+                    // not a proof that there is no solution, so it must not be cached as one
+                    created.complete(null);
+                    return;
+                }
+                // into the cache before out of the running solves, so a request always finds one
+                synchronized (cache) {
+                    cache.put(key, path);
+                }
+                created.complete(path);
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+                // an error that is not caught must not leave the waiting requests hanging
+                created.cancel(false);
+            }
+        });
+        // a task that was cancelled before it started never ends the requests itself
+        ScheduledFuture<?> alarm = timer.schedule(() -> {
+            if (task.cancel(true)) {
+                inFlight.remove(key, created);
+                created.cancel(false);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        created.whenComplete((path, e) -> alarm.cancel(false));
+        return created;
+    }
+
+    /**
+     * answer a solve or hint request
+     * @param exchange the request
+     * @param hint true for a hint, false for the whole path
+     * @throws IOException if the answer can't be sent
+     */
+    private void handle(HttpExchange exchange, boolean hint) throws IOException {
+        long begin = System.nanoTime();
+        requests.increment();
+        int status = 200;
+        String answer;
+        try {
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                errors.increment();
+                reply(exchange, 413, "error the puzzle is bigger than " + MAX_BODY + " bytes\n");
+                latency.record(System.nanoTime() - begin);
+                return;
+            }
+            HoppersConfig config = HoppersConfig.parse(ByteBuffer.wrap(body), "request");
+            List<Configuration> canonical = path((HoppersConfig) config.canonical())
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (canonical == null) {
+                answer = "unknown\n";
+            } else {
+                List<Configuration> path = canonical.isEmpty() ? canonical : Solver.unfold(config, canonical);
+                answer = hint ? hint(path) : solution(path);
+            }
+        } catch (IOException e) {
+            status = 400;
+            answer = "error " + e.getMessage() + "\n";
+        } catch (TimeoutException | CancellationException e) {
+            // a solve is stopped once it takes longer than the timeout, a request that joined it
+            // late may give up before that and a later request may still get it
+            status = 503;
+            answer = "error the solve takes longer than " + timeoutMillis + " ms\n";
+        } catch (ExecutionException e) {
+            status = 500;
+            answer = "error " + e.getCause() + "\n";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 503;
+            answer = "error the service is stopping\n";
+        }
+        if (status != 200) {
+            errors.increment();
+        }
+        reply(exchange, status, answer);
+        latency.record(System.nanoTime() - begin);
+    }
+
+    /**
+     * the answer to a solve request
+     * @param path the solution path, empty if there is none
+     * @return the answer
+     */
+    private static String solution(List<Configuration> path) {
+        if (path.isEmpty()) {
+            return "unsolvable\n";
+        }
+        StringBuilder answer = new StringBuilder("solved " + (path.size() - 1) + "\n");
+        for (Configuration step : path) {
+            answer.append(HoppersBundle.toText((HoppersConfig) step));
+        }
+        return answer.toString();
+    }
+
+    /**
+     * the answer to a hint request
+     * @param path the solution path, empty if there is none
+     * @return the answer
+     */
+    private static String hint(List<Configuration> path) {
+        if (path.isEmpty()) {
+            return "unsolvable\n";
+        }
+        if (path.size() == 1) {
+            return "solved\n";
+        }
+        return "hint\n" + HoppersBundle.toText((HoppersConfig) path.get(1));
+    }
+
+    /**
+     * send an answer
+     * @param exchange the request
+     * @param status the http status
+     * @param answer the body
+     * @throws IOException if it can't be sent
+     */
+    private static void reply(HttpExchange exchange, int status, String answer) throws IOException {
+        byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * the stats of the service
+     * @return one line of json
+     */
+    public String stats() {
+        long requested = requests.sum();
+        int cached;
+        synchronized (cache) {
+            cached = cache.size();
+        }
+        return String.format(Locale.ROOT, "{\"requests\":%d,\"hits\":%d,\"hitRate\":%.4f,\"coalesced\":%d,"
+                        + "\"solves\":%d,\"errors\":%d,\"inFlight\":%d,\"queued\":%d,\"cached\":%d,%s}%n",
+                requested, hits.sum(), requested == 0 ? 0 : (double) hits.sum() / requested, coalesced.sum(),
+                solves.sum(), errors.sum(), inFlight.size(), solvers.getQueue().size(), cached, latency.toJson());
+    }
+
+    /**
+     * run the service until the program is stopped
+     * @param args the service options and the solver options
+     * @throws IOException if the port can't be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int cacheSize = 4096;
+        long timeoutMillis = 60_000;
+        String usage = "Usage: java HoppersService [-p port] [-j solvers] [--cache size] [--timeout seconds] "
+                + SolverOptions.USAGE + " " + Hoppers.FLAGS_USAGE;
+        List<String> rest = new ArrayList<>();
+        SolverOptions options;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-p", "--port" -> port = Integer.parseInt(args[++i]);
+                    case "-j", "--jobs" -> threads = Integer.parseInt(args[++i]);
+                    case "--cache" -> cacheSize = Integer.parseInt(args[++i]);
+                    case "--timeout" -> timeoutMillis = (long) (Double.parseDouble(args[++i]) * 1000);
+                    default -> rest.add(args[i]);
+                }
+            }
+            options = Hoppers.parse(rest.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(usage);
+            return;
+        }
+        if (!options.getArgs().isEmpty() || threads < 1 || cacheSize < 1) {
+            System.out.println(usage);
+            return;
+        }
+        if (options.getMaxStates() == Long.MAX_VALUE) {
+            options.setMaxStates(DEFAULT_MAX_STATES);
+        }
+        Hoppers.pruner(options);
+        Hoppers.scorer(options);
+        HoppersService service = new HoppersService(options, threads, cacheSize, timeoutMillis);
+        System.out.println("Serving on http://localhost:" + service.start(port));
+    }
+}
@@ -0,0 +1,77 @@
+package puzzles.hoppers.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * keeps the latencies of the last requests and gives their percentiles. it is a ring of
+ * the most recent samples, so the percentiles follow the current load instead of the
+ * whole uptime. it can be used by several threads at once.
+ * @author Jonathan Luo
+ */
+class LatencyRecorder {
+    /** the latest samples in nanoseconds, a ring */
+    private final long[] samples;
+    /** amount of samples recorded so far */
+    private long count;
+    /** the longest latency so far */
+    private long max;
+
+    /**
+     * create a recorder
+     * @param capacity amount of samples kept for the percentiles
+     */
+    LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * record a latency
+     * @param nanos the latency in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        samples[(int) (count++ % samples.length)] = nanos;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * get amount of latencies recorded so far
+     * @return amount of samples
+     */
+    synchronized long count() {
+        return count;
+    }
+
+    /**
+     * get percentiles of the kept samples
+     * @param percentiles the percentiles from 0 to 100
+     * @return the latency of each percentile in nanoseconds, 0 if there are no samples
+     */
+    long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length && sorted.length > 0; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100 * sorted.length) - 1;
+            result[i] = sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+        }
+        return result;
+    }
+
+    /**
+     * the percentiles as json fields in milliseconds
+     * @return p50, p90, p99 and max without the braces
+     */
+    String toJson() {
+        long[] p = percentiles(50, 90, 99);
+        long longest;
+        synchronized (this) {
+            longest = max;
+        }
+        return String.format(Locale.ROOT, "\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f",
+                p[0] / 1e6, p[1] / 1e6, p[2] / 1e6, longest / 1e6);
+    }
+}
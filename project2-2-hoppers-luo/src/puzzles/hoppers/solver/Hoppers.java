@@ -1,32 +1,71 @@
 package puzzles.hoppers.solver;
 
+import puzzles.common.solver.BeamSearch;
 import puzzles.common.solver.Configuration;
-import puzzles.common.solver.Solver;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.common.solver.SolverOptions;
 import puzzles.hoppers.model.HoppersConfig;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class Hoppers {
+    /** the flags of the hoppers programs besides the solver options */
+    public static final List<String> FLAGS = List.of("--dfs", "--prune", "--prune-stranded", "--prune-class",
+            "--prune-isolated");
+    /** the flags as shown in a usage message */
+    public static final String FLAGS_USAGE = "[--dfs] [--prune | --prune-stranded --prune-class --prune-isolated]";
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java Hoppers filename");
+        String usage = "Usage: java Hoppers " + SolverOptions.USAGE + " " + FLAGS_USAGE + " filename";
+        SolverOptions options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(usage);
+            return;
+        }
+        if (options.getArgs().size() != 1) {
+            System.out.println(usage);
+            return;
         }
+        HoppersPruner pruner = pruner(options);
+        scorer(options);
         try{
-            System.out.print("File: " + args[0]);
-            HoppersConfig hoppers = new HoppersConfig(args[0]);
+            String filename = options.getArgs().get(0);
+            System.out.print("File: " + filename);
+            HoppersConfig hoppers = new HoppersConfig(filename);
             System.out.println(hoppers);
-            Solver solver = new Solver(hoppers);
+            PuzzleSolver solver = solve(hoppers, options);
             List<Configuration> path = solver.constructPath(hoppers, solver.getSolution());
             System.out.println("Total configs: " + solver.getTotal());
             System.out.println("Unique configs: " + solver.getUnique());
-            if(path.isEmpty()){
+            if (path.isEmpty() && solver instanceof BeamSearch beam && !beam.isExhaustive()) {
+                // the beam may have missed a solution, show how far it got
+                List<Configuration> best = beam.getBestPath();
+                System.out.println("No solution found, best partial path:");
+                for(int i=0; i<best.size();i++){
+                    System.out.println("Step " + i + ": " + best.get(i));
+                }
+            } else if(path.isEmpty()){
                 System.out.println("No solution");
             } else{
                 for(int i=0; i<path.size();i++){
                     System.out.println("Step " + i + ": " + path.get(i));
                 }
             }
+            options.printCount(hoppers);
+            if (pruner != null) {
+                System.err.println("pruned: " + pruner);
+            }
+            if (solver instanceof BeamSearch beam) {
+                for (BeamSearch.Run run : beam.getRuns()) {
+                    System.err.println("beam: " + run);
+                }
+            }
 
 
         }catch (IOException ioe){
@@ -34,4 +73,83 @@ public class Hoppers {
 
         }
     }
+
+    /**
+     * read the solver options and the hoppers flags. --dfs is a solver of its own, so it can't
+     * be used with the options that pick or change the other solvers
+     * @param args the command line arguments
+     * @return the options
+     * @throws IllegalArgumentException if an option is not valid or the options can't be used together
+     */
+    public static SolverOptions parse(String[] args) {
+        SolverOptions options = SolverOptions.parse(args, FLAGS.toArray(new String[0]));
+        if (options.isSet("--dfs") && (options.getThreads() > 1 || options.isSymmetry() || options.isRecordMoves()
+                || options.isExternal() || options.getBeamWidth() > 0)) {
+            throw new IllegalArgumentException("--dfs can't be used with -t, -s, -m, -e or --beam");
+        }
+        return options;
+    }
+
+    /**
+     * checks if the options ask for a particular search instead of the plain bfs
+     * @param options the solver options and the --dfs flag
+     * @return true if a search option was given
+     */
+    private static boolean picksSearch(SolverOptions options) {
+        return options.isSet("--dfs") || options.getThreads() > 1 || options.isSymmetry() || options.isRecordMoves()
+                || options.isExternal() || options.getBeamWidth() > 0;
+    }
+
+    /**
+     * set up the pruner the flags ask for, --prune turns on every rule
+     * @param options the solver options, the pruner is set on them
+     * @return the pruner, null if no rule was asked for
+     */
+    public static HoppersPruner pruner(SolverOptions options) {
+        Set<HoppersPruner.Rule> rules = EnumSet.noneOf(HoppersPruner.Rule.class);
+        for (HoppersPruner.Rule rule : HoppersPruner.Rule.values()) {
+            if (options.isSet("--prune") || options.isSet("--prune-" + rule.name().toLowerCase())) {
+                rules.add(rule);
+            }
+        }
+        if (rules.isEmpty()) {
+            return null;
+        }
+        HoppersPruner pruner = new HoppersPruner(rules);
+        options.setPruner(pruner);
+        return pruner;
+    }
+
+    /**
+     * set up the scorer of the beam search, if a beam width was asked for and no scorer is set.
+     * the options are shared by every solve, so this is done once before the solves start
+     * @param options the solver options, the scorer is set on them
+     */
+    public static void scorer(SolverOptions options) {
+        if (options.getBeamWidth() > 0 && options.getScorer() == null) {
+            // too big to search through, rank the configs by what is left to jump
+            options.setScorer(new HoppersScorer());
+        }
+    }
+
+    /**
+     * solve a hoppers config the way the options say. a database of the board is only used when
+     * the options don't ask for a particular search, as it ignores them
+     * @param hoppers the config
+     * @param options the solver options and the --dfs flag, a beam width picks the beam search,
+     * see {@link #scorer(SolverOptions)}
+     * @return the solver after it has solved
+     */
+    public static PuzzleSolver solve(HoppersConfig hoppers, SolverOptions options) {
+        // a database of the board answers with lookups, otherwise search: the depth first
+        // solver only remembers dead configs, the bfs remembers all of them
+        HoppersDatabase database = HoppersDatabase.of(hoppers.getHoppersBoard());
+        if (database != null && database.covers(hoppers) && !picksSearch(options)) {
+            return database.solve(hoppers);
+        }
+        if (options.getBeamWidth() > 0) {
+            return new BeamSearch(hoppers, options);
+        }
+        return options.isSet("--dfs") ? new HoppersDFSSolver(hoppers, options) : options.solve(hoppers);
+    }
 }
@@ -0,0 +1,372 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.BeamSearch;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.common.solver.SolverOptions;
+import puzzles.common.solver.StateLimitException;
+import puzzles.hoppers.model.HoppersBundle;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * solves many hoppers puzzles in one jvm, on a pool of threads. every result is written as soon
+ * as it is known, as a line of csv or json, so a long batch can be watched while it runs.
+ * <pre>
+ *     java puzzles.hoppers.solver.HoppersBatch [-j jobs] [--timeout seconds] [--format csv|jsonl]
+ *                                              [--order finish|input] [-o file] [solver options]
+ *                                              [--dfs] [--prune...] file, directory or glob...
+ * </pre>
+ * a directory stands for the .txt files in it, a glob like "data/hoppers/*.txt" for the files it
+ * matches, and a {@link HoppersBundle} file for all the puzzles in it. every puzzle gets its own time limit: the thread that solves it is interrupted when
+ * the time is up, which the solvers check every few thousand configs, and --max-states keeps a
+ * puzzle from taking the heap of the others. a puzzle that hits a limit is reported as such and
+ * the batch goes on. with --order input the results come out in the order of the files, held back
+ * until the ones before them are done, with --order finish (the default) as they are done.
+ * a beam search that ends without a solution but had to drop configs proves nothing, so such a
+ * puzzle is reported as unknown rather than as unsolvable.
+ * @author Jonathan Luo
+ */
+public class HoppersBatch {
+    /** the batch options as shown in a usage message */
+    private static final String USAGE = "[-j jobs] [--timeout seconds] [--format csv|jsonl] [--order finish|input] [-o file]";
+    /** the header of the csv output */
+    private static final String CSV_HEADER = "file,status,solvable,steps,total,unique,millis";
+
+    /** amount of puzzles solved at the same time */
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    /** the longest a puzzle may take, 0 for no limit */
+    private long timeoutMillis;
+    /** whether the results are json lines instead of csv */
+    private boolean json;
+    /** whether the results are written in the order of the files */
+    private boolean inputOrder;
+    /** where the results are written */
+    private PrintStream out = System.out;
+    /** the options every puzzle is solved with */
+    private SolverOptions options;
+    /** interrupts the solves that take too long */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hoppers-batch-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * a puzzle of the batch
+     * @param name name of the puzzle in the results
+     * @param file the puzzle file or the bundle it is in
+     * @param bundle the bundle it is in, null for a puzzle file
+     * @param index number of the puzzle in its bundle
+     */
+    private record Puzzle(String name, Path file, HoppersBundle bundle, int index) {
+        /**
+         * read the puzzle
+         * @return its config
+         * @throws IOException if the puzzle file can't be read
+         */
+        HoppersConfig load() throws IOException {
+            return bundle == null ? HoppersConfig.read(file) : bundle.get(index);
+        }
+    }
+
+    /**
+     * the result of one puzzle
+     * @param index position of the puzzle in the batch
+     * @param name name of the puzzle
+     * @param status solved, unknown, timeout, limit, memory or error
+     * @param solvable whether the puzzle can be solved, null if not known
+     * @param steps amount of jumps of the solution, -1 if there is none or it is not known
+     * @param total total configs generated, -1 if not known
+     * @param unique unique configs, -1 if not known
+     * @param millis wall time of the solve
+     */
+    private record Result(int index, String name, String status, Boolean solvable, int steps, long total, int unique,
+                          long millis) {
+        /**
+         * the result as a line of csv
+         * @return the line
+         */
+        String csv() {
+            String name = this.name;
+            if (name.contains(",") || name.contains("\"")) {
+                name = '"' + name.replace("\"", "\"\"") + '"';
+            }
+            return name + "," + status + "," + solvable + "," + steps + "," + total + "," + unique + "," + millis;
+        }
+
+        /**
+         * the result as a line of json
+         * @return the line
+         */
+        String json() {
+            String name = this.name.replace("\\", "\\\\").replace("\"", "\\\"");
+            return "{\"file\":\"" + name + "\",\"status\":\"" + status + "\",\"solvable\":" + solvable
+                    + ",\"steps\":" + steps + ",\"total\":" + total + ",\"unique\":" + unique
+                    + ",\"millis\":" + millis + "}";
+        }
+    }
+
+    /**
+     * interrupts the thread of a solve when its time is up, unless the solve is over. turning it
+     * off and going off hold the same lock, so once it is off it can't interrupt the thread
+     * anymore, not even when the timer was already running it
+     */
+    private static class Alarm implements Runnable {
+        /** the thread of the solve */
+        private final Thread thread;
+        /** whether the solve is over */
+        private boolean off;
+
+        /**
+         * create the alarm of the solve on the current thread
+         */
+        Alarm() {
+            this.thread = Thread.currentThread();
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!off) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * the solve is over, the thread is no longer interrupted for it
+         */
+        synchronized void turnOff() {
+            off = true;
+        }
+    }
+
+    /**
+     * solve one puzzle, interrupting itself when it runs out of time
+     * @param index position of the puzzle in the batch
+     * @param puzzle the puzzle
+     * @return the result
+     */
+    private Result solve(int index, Puzzle puzzle) {
+        long begin = System.nanoTime();
+        Alarm alarm = new Alarm();
+        ScheduledFuture<?> scheduled = timeoutMillis > 0
+                ? timer.schedule(alarm, timeoutMillis, TimeUnit.MILLISECONDS) : null;
+        String status;
+        Boolean solvable = null;
+        int steps = -1;
+        long total = -1;
+        int unique = -1;
+        try {
+            HoppersConfig hoppers = puzzle.load();
+            PuzzleSolver solver = Hoppers.solve(hoppers, options);
+            List<Configuration> path = solver.constructPath(hoppers, solver.getSolution());
+            if (path.isEmpty() && solver instanceof BeamSearch beam && !beam.isExhaustive()) {
+                // the beam may have dropped the configs of a solution
+                status = "unknown";
+            } else {
+                status = "solved";
+                solvable = !path.isEmpty();
+                // the path has the start and a config after every jump
+                steps = path.size() - 1;
+            }
+            total = solver.getTotal();
+            unique = solver.getUnique();
+        } catch (CancellationException e) {
+            status = "timeout";
+        } catch (StateLimitException e) {
+            status = "limit";
+        } catch (OutOfMemoryError e) {
+            // whatever the solve held is garbage now, so the other puzzles can go on
+            status = "memory";
+        } catch (IOException | RuntimeException e) {
+            status = "error";
+        } finally {
+            alarm.turnOff();
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            // the alarm may have gone off just after the solve, the next puzzle must not see it
+            Thread.interrupted();
+        }
+        return new Result(index, puzzle.name(), status, solvable, steps, total, unique, (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    /**
+     * solve all puzzles and write their results
+     * @param puzzles the puzzles
+     * @throws InterruptedException if the batch itself is interrupted
+     */
+    private void run(List<Puzzle> puzzles) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(jobs, runnable -> {
+            Thread thread = new Thread(runnable, "hoppers-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Result> done = new ExecutorCompletionService<>(pool);
+        for (int i = 0; i < puzzles.size(); i++) {
+            int index = i;
+            done.submit(() -> solve(index, puzzles.get(index)));
+        }
+        if (!json) {
+            out.println(CSV_HEADER);
+        }
+        // results that are done before the ones in front of them, with --order input
+        Map<Integer, Result> waiting = new HashMap<>();
+        int written = 0;
+        try {
+            for (int i = 0; i < puzzles.size(); i++) {
+                Result result = done.take().get();
+                if (!inputOrder) {
+                    write(result);
+                    continue;
+                }
+                waiting.put(result.index(), result);
+                while (waiting.containsKey(written)) {
+                    write(waiting.remove(written++));
+                }
+            }
+        } catch (ExecutionException e) {
+            // solve catches everything a puzzle can throw
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * write a result
+     * @param result the result
+     */
+    private void write(Result result) {
+        out.println(json ? result.json() : result.csv());
+        out.flush();
+    }
+
+    /**
+     * get the puzzles an argument stands for
+     * @param arg a file, a directory, a glob or a bundle
+     * @return the puzzles
+     * @throws IOException if a directory can't be listed or a bundle can't be opened
+     */
+    private static List<Puzzle> puzzles(String arg) throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (Path file : files(arg)) {
+            if (file.toString().endsWith(HoppersBundle.EXTENSION)) {
+                HoppersBundle bundle = new HoppersBundle(file);
+                for (int i = 0; i < bundle.size(); i++) {
+                    puzzles.add(new Puzzle(file + "#" + bundle.name(i), file, bundle, i));
+                }
+            } else {
+                puzzles.add(new Puzzle(file.toString(), file, null, -1));
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * get the files an argument stands for
+     * @param arg a file, a directory or a glob
+     * @return the files
+     * @throws IOException if a directory can't be listed
+     */
+    private static List<Path> files(String arg) throws IOException {
+        List<Path> files = new ArrayList<>();
+        int glob = indexOfAny(arg, "*?[{");
+        if (glob >= 0) {
+            // walk from the last directory before the pattern starts
+            int slash = arg.lastIndexOf('/', glob);
+            Path base = Path.of(slash < 0 ? "." : arg.substring(0, slash + 1));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + arg);
+            try (Stream<Path> walked = Files.walk(base)) {
+                walked.filter(Files::isRegularFile)
+                        .filter(p -> matcher.matches(slash < 0 ? base.relativize(p) : p))
+                        .sorted().forEach(files::add);
+            }
+        } else if (Files.isDirectory(Path.of(arg))) {
+            try (Stream<Path> listed = Files.list(Path.of(arg))) {
+                listed.filter(p -> p.toString().endsWith(".txt")).sorted().forEach(files::add);
+            }
+        } else {
+            files.add(Path.of(arg));
+        }
+        return files;
+    }
+
+    /**
+     * get the first position of any of some characters
+     * @param string the string to look in
+     * @param chars the characters
+     * @return the position, -1 if none of them is in the string
+     */
+    private static int indexOfAny(String string, String chars) {
+        for (int i = 0; i < string.length(); i++) {
+            if (chars.indexOf(string.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * solve a batch of puzzles
+     * @param args the batch options, the solver options and the puzzles
+     * @throws IOException if a directory can't be listed, a bundle can't be opened or the output file can't be opened
+     * @throws InterruptedException if the batch is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        HoppersBatch batch = new HoppersBatch();
+        String usage = "Usage: java HoppersBatch " + USAGE + " " + SolverOptions.USAGE
+                + " " + Hoppers.FLAGS_USAGE + " file, directory, glob or bundle...";
+        List<String> rest = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-j", "--jobs" -> batch.jobs = Integer.parseInt(args[++i]);
+                    case "--timeout" -> batch.timeoutMillis = (long) (Double.parseDouble(args[++i]) * 1000);
+                    case "--format" -> batch.json = switch (args[++i]) {
+                        case "csv" -> false;
+                        case "jsonl", "json" -> true;
+                        default -> throw new IllegalArgumentException("unknown format " + args[i]);
+                    };
+                    case "--order" -> batch.inputOrder = switch (args[++i]) {
+                        case "finish" -> false;
+                        case "input" -> true;
+                        default -> throw new IllegalArgumentException("unknown order " + args[i]);
+                    };
+                    case "-o" -> batch.out = new PrintStream(args[++i]);
+                    default -> rest.add(args[i]);
+                }
+            }
+            batch.options = Hoppers.parse(rest.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(usage);
+            return;
+        }
+        if (batch.options.getArgs().isEmpty() || batch.jobs < 1) {
+            System.out.println(usage);
+            return;
+        }
+        HoppersPruner pruner = Hoppers.pruner(batch.options);
+        Hoppers.scorer(batch.options);
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (String arg : batch.options.getArgs()) {
+            puzzles.addAll(puzzles(arg));
+        }
+        batch.run(puzzles);
+        batch.out.close();
+        if (pruner != null) {
+            System.err.println("pruned: " + pruner);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.PackedKeySet;
+import puzzles.common.solver.Pruner;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.common.solver.SolverOptions;
+import puzzles.common.solver.SolverStats;
+import puzzles.common.solver.StateLimitException;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * a depth first solver for hoppers. every jump takes exactly one green frog off the board,
+ * so every solution is as long as there are green frogs and no config can ever come back.
+ * the first solution found is therefore a shortest one, and only the configs that were
+ * proven to have no solution have to be remembered. they are kept as packed keys, so the
+ * memory grows with the dead configs only, a few longs each.
+ * the search goes up and down the depths instead of one after another, so with listeners the
+ * numbers of each depth are tallied and handed to the {@link SolverStats} when it is done.
+ * @author Jonathan Luo
+ */
+public class HoppersDFSSolver implements PuzzleSolver {
+    /** the total configs generated*/
+    private long total;
+    /** amount of configs that were searched */
+    private int unique;
+    /** the configs that have no solution */
+    private final PackedKeySet dead;
+    /** scratch array for the key of a config */
+    private final long[] key;
+    /** the configs from the start to the solution, empty if there is none */
+    private final List<Configuration> path = new LinkedList<>();
+    /** the solution configuration*/
+    private Configuration solution;
+    /** the most configs the search may go through */
+    private final long maxStates;
+    /** tells which configs can't be solved, null to search all of them */
+    private final Pruner pruner;
+    /** the stats of the solve, null if nobody listens */
+    private final SolverStats stats;
+    /** the numbers of each depth, the index is the depth, only kept for the stats */
+    private final List<Tally> tallies = new ArrayList<>();
+
+    /**
+     * the numbers of one depth of the search
+     */
+    private static class Tally {
+        /** amount of configs searched at the depth */
+        int searched;
+        /** amount of configs whose neighbors were generated */
+        long expanded;
+        /** amount of neighbors generated */
+        long generated;
+        /** amount of neighbors that were searched, the rest were dead */
+        long added;
+        /** time spent generating neighbors */
+        long neighborNanos;
+        /** time spent looking neighbors up in the dead set */
+        long lookupNanos;
+    }
+
+    /**
+     * solve a hoppers config
+     * @param start the starting configuration
+     * @throws CancellationException if the thread gets interrupted while solving
+     */
+    public HoppersDFSSolver(HoppersConfig start) {
+        this(start, new SolverOptions());
+    }
+
+    /**
+     * solve a hoppers config with the limits and the pruner of some solver options
+     * @param start the starting configuration
+     * @param options the options, the rest of them is for the bfs solvers
+     * @throws CancellationException if the thread gets interrupted while solving
+     * @throws StateLimitException if the search goes through more configs than the options allow
+     */
+    public HoppersDFSSolver(HoppersConfig start, SolverOptions options) {
+        this.maxStates = options.getMaxStates();
+        this.pruner = options.getPruner();
+        this.stats = SolverStats.of(options);
+        this.dead = new PackedKeySet(start.keyWidth());
+        this.key = new long[start.keyWidth()];
+        total += 1;
+        search(start);
+        if (stats != null) {
+            // only the dead configs are remembered, the path is a few configs on top
+            for (Tally tally : tallies) {
+                stats.layer(tally.searched, dead.size());
+                stats.expanded(tally.expanded, tally.generated, tally.added, tally.neighborNanos, tally.lookupNanos);
+            }
+            stats.finish(dead.size(), dead.memory());
+        }
+    }
+
+    /**
+     * get the numbers of a depth
+     * @param depth the depth
+     * @return its tally
+     */
+    private Tally tally(int depth) {
+        while (tallies.size() <= depth) {
+            tallies.add(new Tally());
+        }
+        return tallies.get(depth);
+    }
+
+    /**
+     * search the configs below a config, the path holds the configs above it
+     * @param current the config
+     * @return true if a solution was found
+     */
+    private boolean search(HoppersConfig current) {
+        unique += 1;
+        // a solve in the background is cancelled by interrupting it
+        if ((unique & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("solve of " + current + " was interrupted");
+        }
+        if (unique > maxStates) {
+            throw new StateLimitException(maxStates);
+        }
+        path.add(current);
+        Tally tally = stats != null ? tally(path.size() - 1) : null;
+        if (tally != null) {
+            tally.searched++;
+        }
+        if (current.isSolution()) {
+            solution = current;
+            return true;
+        }
+        long begin = tally != null ? System.nanoTime() : 0;
+        Collection<Configuration> neighbors = current.getNeighbors();
+        if (tally != null) {
+            tally.expanded++;
+            tally.neighborNanos += System.nanoTime() - begin;
+        }
+        for (Configuration nbr : neighbors) {
+            total += 1;
+            HoppersConfig next = (HoppersConfig) nbr;
+            next.writeKey(key, 0);
+            long found = tally != null ? System.nanoTime() : 0;
+            boolean open = !dead.contains(key, 0);
+            if (tally != null) {
+                tally.lookupNanos += System.nanoTime() - found;
+            }
+            // pruning counts as neighbor time, like in the bfs
+            open = open && !isDead(next);
+            if (tally != null) {
+                tally.generated++;
+                tally.added += open ? 1 : 0;
+            }
+            if (open && search(next)) {
+                return true;
+            }
+        }
+        current.writeKey(key, 0);
+        dead.add(key, 0);
+        path.remove(path.size() - 1);
+        return false;
+    }
+
+    /**
+     * checks if a config was proven to have no solution, so it does not have to be searched
+     * @param config a config
+     * @return true if the pruner says it is dead
+     */
+    private boolean isDead(HoppersConfig config) {
+        return pruner != null && !config.isSolution() && pruner.isDead(config);
+    }
+
+    /**
+     * get the solution after solving the configuration
+     * @return solution configuration
+     */
+    @Override
+    public Configuration getSolution() {
+        return solution;
+    }
+
+    /**
+     * get the path that was found, it has the same shape as the path of the bfs solver
+     * @param startNode the start configuration
+     * @param endNode the end configuration
+     * @return a list of configurations from the start to the solution, empty if
+     * there is no solution or the nodes are not the ends of the path
+     */
+    @Override
+    public List<Configuration> constructPath(Configuration startNode, Configuration endNode) {
+        if (solution == null || !solution.equals(endNode) || !path.get(0).equals(startNode)) {
+            return new LinkedList<>();
+        }
+        return new LinkedList<>(path);
+    }
+
+    /**
+     * get total configs generated
+     * @return the number of total configs
+     */
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * get the number of unique configs
+     * @return number of configs
+     */
+    @Override
+    public int getUnique() {
+        return unique;
+    }
+}
@@ -0,0 +1,415 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.Coordinates;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.LongLongTable;
+import puzzles.common.solver.LongRingBuffer;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.hoppers.model.HoppersBoard;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * a database of every solvable config of a board shape, with the next jump of each one.
+ * it is built backwards: the goals are the configs with only the red frog left, and un-jumping
+ * a frog puts a green frog back on the space it jumped over. as every jump takes one green frog
+ * off the board, every solution of a config is as long as it has green frogs, so the configs
+ * found with k green frogs are exactly the solvable ones with k green frogs and the jump that was
+ * un-done is a best next move. the configs are kept as their codes, so only boards whose configs
+ * can be encoded get a database, see {@link HoppersConfig#isEncodable()}.
+ * the database is a file with an open addressing hash table from code to jump that is memory
+ * mapped, so a lookup is a few reads. the files are in the directory of the system property
+ * {@value #DIRECTORY_PROPERTY}, "db" by default, and are named after the board shape.
+ * @author Jonathan Luo
+ */
+public class HoppersDatabase {
+    /** the system property with the directory of the database files */
+    public static final String DIRECTORY_PROPERTY = "hoppers.db";
+    /** the first long of every database file */
+    private static final long MAGIC = 0x484F505045525342L;
+    /** the version of the file layout, 2 scrambles the codes with {@link LongLongTable#mix(long)} */
+    private static final long VERSION = 2;
+    /** amount of longs in the header, before the lily pad bitboard */
+    private static final int HEADER = 7;
+    /** the code that marks an empty slot */
+    private static final long EMPTY = -1;
+    /** the jump of a goal, it has none */
+    private static final long GOAL = -1;
+    /** the most boards {@link #DATABASES} keeps */
+    private static final int OPENED = 16;
+    /** the databases that were opened last, empty if a board has none, least recently used first */
+    private static final Map<HoppersBoard, Optional<HoppersDatabase>> DATABASES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<HoppersBoard, Optional<HoppersDatabase>> eldest) {
+            return size() > OPENED;
+        }
+    };
+
+    /** the board shape of the configs */
+    private final HoppersBoard board;
+    /** the most green frogs a config in the database has */
+    private final int maxGreens;
+    /** the key value slots of the hash table */
+    private final LongBuffer slots;
+    /** the slot count minus one, the slot count is a power of two */
+    private final int mask;
+    /** amount of configs in the database */
+    private final long size;
+
+    /**
+     * open a database file
+     * @param file the file
+     * @param board the board shape the file must be for
+     * @throws IOException if the file can't be read or is not a database of the board
+     */
+    private HoppersDatabase(Path file, HoppersBoard board) throws IOException {
+        this.board = board;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too big to map");
+            }
+            // the mapping stays valid after the channel is closed
+            LongBuffer longs = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+            long[] header = new long[HEADER + board.getWords()];
+            longs.get(header);
+            if (header[0] != MAGIC || header[1] != VERSION || header[2] != board.getRow()
+                    || header[3] != board.getColumn() || !Arrays.equals(header, HEADER, header.length,
+                    board.getPlayable(), 0, board.getWords())) {
+                throw new IOException(file + " is not a database of a " + board.getRow() + "x" + board.getColumn() + " board");
+            }
+            this.maxGreens = (int) header[4];
+            this.mask = (int) header[5] - 1;
+            this.size = header[6];
+            this.slots = longs.slice();
+            if (slots.remaining() != 2L * (mask + 1)) {
+                throw new IOException(file + " is cut off");
+            }
+        }
+    }
+
+    /**
+     * get the database of a board shape
+     * @param board the board
+     * @return the database, null if there is no database file for the board
+     */
+    public static HoppersDatabase of(HoppersBoard board) {
+        synchronized (DATABASES) {
+            return DATABASES.computeIfAbsent(board, b -> {
+                Path file = file(b);
+                if (!Files.isRegularFile(file)) {
+                    return Optional.empty();
+                }
+                try {
+                    return Optional.of(new HoppersDatabase(file, b));
+                } catch (IOException ioe) {
+                    System.err.println(ioe.getMessage());
+                    return Optional.empty();
+                }
+            }).orElse(null);
+        }
+    }
+
+    /**
+     * get the file the database of a board shape is kept in
+     * @param board the board
+     * @return the file in the database directory
+     */
+    public static Path file(HoppersBoard board) {
+        StringBuilder name = new StringBuilder("hoppers-" + board.getRow() + "x" + board.getColumn() + "-");
+        for (long word : board.getPlayable()) {
+            name.append(String.format("%016x", word));
+        }
+        return Path.of(System.getProperty(DIRECTORY_PROPERTY, "db"), name + ".hdb");
+    }
+
+    /**
+     * checks if the database knows whether a config can be solved
+     * @param config the config
+     * @return true if the config is on this board and has few enough green frogs
+     */
+    public boolean covers(HoppersConfig config) {
+        return config.getHoppersBoard() == board && config.countGreens() <= maxGreens;
+    }
+
+    /**
+     * checks if a config can be solved
+     * @param config a config the database covers
+     * @return true if there is a solution
+     */
+    public boolean isSolvable(HoppersConfig config) {
+        return find(config.encode()) >= 0;
+    }
+
+    /**
+     * get the config after the best next jump
+     * @param config a config the database covers
+     * @return the next config, null if the config is already solved or can't be solved
+     */
+    public HoppersConfig next(HoppersConfig config) {
+        int slot = find(config.encode());
+        if (slot < 0) {
+            return null;
+        }
+        long jump = slots.get(2 * slot + 1);
+        if (jump == GOAL) {
+            return null;
+        }
+        int from = (int) (jump >>> 16);
+        int to = (int) (jump & 0xFFFF);
+        return config.makeJump(new Coordinates(board.rowOf(from), board.colOf(from)),
+                new Coordinates(board.rowOf(to), board.colOf(to)));
+    }
+
+    /**
+     * solve a config by following the best jumps of the database
+     * @param start a config the database covers
+     * @return the solver with the path
+     */
+    public PuzzleSolver solve(HoppersConfig start) {
+        return new LookupSolver(start);
+    }
+
+    /**
+     * get amount of configs in the database
+     * @return the size
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * get the most green frogs a config in the database has
+     * @return the limit the database was built with
+     */
+    public int getMaxGreens() {
+        return maxGreens;
+    }
+
+    /**
+     * find the slot of a code
+     * @param code the code
+     * @return the slot, -1 if the code is not in the database
+     */
+    private int find(long code) {
+        for (int slot = slot(code, mask); ; slot = (slot + 1) & mask) {
+            long found = slots.get(2 * slot);
+            if (found == code) {
+                return slot;
+            } else if (found == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * the first slot a code probes
+     * @param code the code
+     * @param mask the slot count minus one
+     * @return the slot
+     */
+    private static int slot(long code, int mask) {
+        return (int) (LongLongTable.mix(code) >>> 32) & mask;
+    }
+
+    /**
+     * build the database of a board shape by un-jumping from every goal and write it to its file
+     * @param board the board, its configs must be encodable
+     * @param maxGreens the most green frogs a config in the database may have
+     * @return the file
+     * @throws IOException if the file can't be written
+     */
+    public static Path build(HoppersBoard board, int maxGreens) throws IOException {
+        int cells = board.getCells();
+        long greens = (1L << cells) - 1;
+        LongLongTable jumps = new LongLongTable();
+        LongRingBuffer all = new LongRingBuffer();
+        LongRingBuffer level = new LongRingBuffer();
+        for (int cell = 0; cell < cells; cell++) {
+            if (board.isPlayable(cell)) {
+                long goal = (long) (cell + 1) << cells;
+                jumps.putIfAbsent(goal, GOAL);
+                level.add(goal);
+            }
+        }
+        for (int count = 0; count < maxGreens && !level.isEmpty(); count++) {
+            LongRingBuffer previous = level;
+            level = new LongRingBuffer();
+            while (!previous.isEmpty()) {
+                long code = previous.remove();
+                all.add(code);
+                long green = code & greens;
+                int red = (int) (code >>> cells) - 1;
+                long frogs = green | 1L << red;
+                for (long bits = frogs; bits != 0; bits &= bits - 1) {
+                    int to = Long.numberOfTrailingZeros(bits);
+                    // a frog on this cell could have come from any cell it can jump to
+                    for (int jump = board.firstJump(to); jump < board.lastJump(to); jump++) {
+                        int from = board.landing(jump);
+                        int over = board.jumped(jump);
+                        if ((frogs & (1L << from | 1L << over)) != 0) {
+                            continue;
+                        }
+                        long before = to == red
+                                ? green | 1L << over | (long) (from + 1) << cells
+                                : (green ^ 1L << to) | 1L << from | 1L << over | (long) (red + 1) << cells;
+                        if (jumps.putIfAbsent(before, (long) from << 16 | to)) {
+                            level.add(before);
+                        }
+                    }
+                }
+            }
+        }
+        while (!level.isEmpty()) {
+            all.add(level.remove());
+        }
+        return write(board, maxGreens, jumps, all);
+    }
+
+    /**
+     * write the codes and their jumps to the file of a board as a hash table at most half full
+     * @param board the board
+     * @param maxGreens the most green frogs a config in the database has
+     * @param jumps the jump of each code
+     * @param codes the codes
+     * @return the file
+     * @throws IOException if the file can't be written
+     */
+    private static Path write(HoppersBoard board, int maxGreens, LongLongTable jumps, LongRingBuffer codes) throws IOException {
+        int count = codes.size();
+        long slotCount = Long.highestOneBit(Math.max(1, count)) << 2;
+        int headerLongs = HEADER + board.getWords();
+        long bytes = (headerLongs + 2 * slotCount) * Long.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException(count + " configs are too many to map, use fewer green frogs");
+        }
+        int mask = (int) slotCount - 1;
+        Path file = file(board);
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            LongBuffer longs = mapped.asLongBuffer();
+            longs.put(new long[]{MAGIC, VERSION, board.getRow(), board.getColumn(), maxGreens, slotCount, count});
+            longs.put(board.getPlayable());
+            LongBuffer slots = longs.slice();
+            for (int i = 0; i < slotCount; i++) {
+                slots.put(2 * i, EMPTY);
+            }
+            while (!codes.isEmpty()) {
+                long code = codes.remove();
+                int slot = slot(code, mask);
+                while (slots.get(2 * slot) != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.put(2 * slot, code);
+                slots.put(2 * slot + 1, jumps.get(code));
+            }
+            mapped.force();
+        }
+        synchronized (DATABASES) {
+            DATABASES.remove(board);
+        }
+        return file;
+    }
+
+    /**
+     * a solver that only looks up the next jump of each config of the path
+     */
+    private class LookupSolver implements PuzzleSolver {
+        /** the configs from the start to the solution, empty if there is none */
+        private final List<Configuration> path = new LinkedList<>();
+        /** the solution configuration*/
+        private Configuration solution;
+
+        /**
+         * follow the jumps of the database from a config
+         * @param start the starting configuration
+         */
+        LookupSolver(HoppersConfig start) {
+            if (isSolvable(start)) {
+                for (HoppersConfig current = start; current != null; current = next(current)) {
+                    path.add(current);
+                    solution = current;
+                }
+            }
+        }
+
+        @Override
+        public Configuration getSolution() {
+            return solution;
+        }
+
+        @Override
+        public List<Configuration> constructPath(Configuration startNode, Configuration endNode) {
+            return endNode == null ? new LinkedList<>() : new LinkedList<>(path);
+        }
+
+        /**
+         * get amount of lookups
+         * @return the number of configs looked up
+         */
+        @Override
+        public long getTotal() {
+            return path.size();
+        }
+
+        /**
+         * get amount of lookups, every config is only looked up once
+         * @return the number of configs looked up
+         */
+        @Override
+        public int getUnique() {
+            return path.size();
+        }
+    }
+
+    /**
+     * build the database of the board shape of a puzzle file
+     * @param args the options and the puzzle file
+     */
+    public static void main(String[] args) {
+        int maxGreens = -1;
+        String filename = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--max-greens") && i + 1 < args.length) {
+                maxGreens = Integer.parseInt(args[++i]);
+            } else {
+                filename = args[i];
+            }
+        }
+        if (filename == null) {
+            System.out.println("Usage: java HoppersDatabase [--max-greens n] filename");
+            return;
+        }
+        try {
+            HoppersConfig hoppers = new HoppersConfig(filename);
+            if (!hoppers.isEncodable()) {
+                System.out.println("The configs of a " + hoppers.getRow() + "x" + hoppers.getColumn() + " board can't be encoded");
+                return;
+            }
+            HoppersBoard board = hoppers.getHoppersBoard();
+            if (maxGreens < 0) {
+                maxGreens = board.getCells() - 1;
+            }
+            long begin = System.nanoTime();
+            Path file = build(board, maxGreens);
+            HoppersDatabase database = of(board);
+            System.out.println("Database: " + file);
+            System.out.println("Solvable configs: " + database.size());
+            System.out.printf("Built in %.2f s%n", (System.nanoTime() - begin) / 1e9);
+            if (database.covers(hoppers)) {
+                System.out.println("Solvable: " + database.isSolvable(hoppers));
+            }
+        } catch (IOException ioe) {
+            System.err.println(ioe.getMessage());
+        }
+    }
+}
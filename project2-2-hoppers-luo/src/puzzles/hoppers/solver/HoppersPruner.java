@@ -0,0 +1,320 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Pruner;
+import puzzles.hoppers.model.HoppersBoard;
+import puzzles.hoppers.model.HoppersConfig;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * proves hoppers configs unsolvable with a few cheap checks on the board geometry, so the
+ * solvers don't expand them. every jump takes one green frog off, so a config with k green
+ * frogs is solved in exactly k jumps, and every green frog has to be jumped over once.
+ * a frog always stays in its class: its row parity and its row minus column modulo 4 never
+ * change, because a jump moves it 2 rows and 2 columns or 4 rows or 4 columns. so a class
+ * that has no frogs never gets one again.
+ * <ul>
+ *     <li>{@link Rule#STRANDED}: a green frog sits on a cell that no jump on the board goes over,
+ *     and it can never jump away because no green frog is left in the classes it could jump over</li>
+ *     <li>{@link Rule#CLASS}: the cells of a green frog's class can only be jumped over from
+ *     classes that have no frog left</li>
+ *     <li>{@link Rule#ISOLATED}: the frogs fall apart into groups too far from each other to ever
+ *     meet. a jump moves one frog at most 4 rows or columns and a frog can only jump over a frog
+ *     at most 2 rows or columns away, so with k jumps left two groups further apart than
+ *     2 + 4 (k - 1) stay apart, and a group without the red frog can't clear itself</li>
+ * </ul>
+ * the rules can be picked one by one and count how many configs they pruned. the tables of a
+ * board are built the first time a config of it is checked, so one pruner works for every board,
+ * and they are dropped with the board.
+ * it can be used by several threads at once.
+ * @author Jonathan Luo
+ */
+public class HoppersPruner implements Pruner {
+    /**
+     * the checks a pruner can make, cheapest first
+     */
+    public enum Rule {
+        /** a green frog no jump goes over */
+        STRANDED,
+        /** a green frog no remaining frog class can jump over */
+        CLASS,
+        /** groups of frogs that can never meet */
+        ISOLATED
+    }
+
+    /**
+     * the tables of a board, sets of classes are a bit per class
+     * @param stranded bitboard of the cells no jump goes over
+     * @param classes the class of each cell
+     * @param over for each cell the classes of the cells a frog on it can jump over
+     * @param jumpers for each class the classes a frog can jump over a cell of the class from
+     */
+    private record Tables(long[] stranded, byte[] classes, byte[] over, byte[] jumpers) {
+    }
+
+    /** the rules that are checked */
+    private final EnumSet<Rule> rules;
+    /** amount of configs checked */
+    private final LongAdder checked = new LongAdder();
+    /** amount of configs pruned by each rule, a config only counts for the first rule that pruned it */
+    private final LongAdder[] pruned = new LongAdder[Rule.values().length];
+    /**
+     * the tables of a board and the board, the last ones looked up
+     * @param board the board
+     * @param tables its tables
+     */
+    private record Last(HoppersBoard board, Tables tables) {
+    }
+
+    /** the tables of the boards that are still in use, the tables don't keep their board alive */
+    private final Map<HoppersBoard, Tables> tables = Collections.synchronizedMap(new WeakHashMap<>());
+    /** the board looked up last, a solve only has one so the map is almost never needed */
+    private volatile Last last;
+
+    /**
+     * create a pruner
+     * @param rules the rules to check
+     */
+    public HoppersPruner(Set<Rule> rules) {
+        this.rules = EnumSet.noneOf(Rule.class);
+        this.rules.addAll(rules);
+        for (int i = 0; i < pruned.length; i++) {
+            pruned[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * create a pruner that checks every rule
+     */
+    public HoppersPruner() {
+        this(EnumSet.allOf(Rule.class));
+    }
+
+    /**
+     * get the class of a cell, which no frog ever leaves
+     * @param board the board
+     * @param cell the cell
+     * @return the class from 0 to 3
+     */
+    private static int classOf(HoppersBoard board, int cell) {
+        int r = board.rowOf(cell);
+        return (r & 1) << 1 | ((r - board.colOf(cell)) & 2) >> 1;
+    }
+
+    /**
+     * build the tables of a board
+     * @param board the board
+     * @return the tables
+     */
+    private static Tables tables(HoppersBoard board) {
+        int cells = board.getCells();
+        long[] stranded = board.newBitboard();
+        byte[] classes = new byte[cells];
+        byte[] over = new byte[cells];
+        byte[] jumpers = new byte[4];
+        for (int cell = 0; cell < cells; cell++) {
+            classes[cell] = (byte) classOf(board, cell);
+            HoppersBoard.set(stranded, cell);
+        }
+        for (int from = 0; from < cells; from++) {
+            for (int jump = board.firstJump(from); jump < board.lastJump(from); jump++) {
+                int jumped = board.jumped(jump);
+                over[from] |= (byte) (1 << classes[jumped]);
+                jumpers[classes[jumped]] |= (byte) (1 << classes[from]);
+                HoppersBoard.clear(stranded, jumped);
+            }
+        }
+        return new Tables(stranded, classes, over, jumpers);
+    }
+
+    /**
+     * checks if a hoppers config can't be solved
+     * @param config a hoppers config that is not a solution
+     * @return true if one of the rules proves it has no solution
+     */
+    @Override
+    public boolean isDead(Configuration config) {
+        checked.increment();
+        HoppersConfig hoppers = (HoppersConfig) config;
+        HoppersBoard board = hoppers.getHoppersBoard();
+        Last found = last;
+        if (found == null || found.board() != board) {
+            found = new Last(board, tables.computeIfAbsent(board, HoppersPruner::tables));
+            last = found;
+        }
+        Tables table = found.tables();
+        // read in place, this runs for every config the solvers generate
+        long[] green = hoppers.getGreen();
+        int words = green.length;
+        int red = hoppers.getRed();
+        for (Rule rule : rules) {
+            boolean dead = switch (rule) {
+                case STRANDED -> isStranded(green, words, table);
+                case CLASS -> isClassDead(green, words, red, table);
+                case ISOLATED -> isIsolated(green, words, red, board);
+            };
+            if (dead) {
+                pruned[rule.ordinal()].increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * checks if a green frog sits on a cell no jump goes over and can never jump away
+     * @param green the green bitboard
+     * @param words amount of words of the bitboard
+     * @param table the tables of the board
+     * @return true if there is such a frog
+     */
+    private static boolean isStranded(long[] green, int words, Tables table) {
+        int greens = -1;
+        for (int word = 0; word < words; word++) {
+            for (long bits = green[word] & table.stranded()[word]; bits != 0; bits &= bits - 1) {
+                if (greens == -1) {
+                    greens = classes(green, words, -1, table);
+                }
+                // a frog never jumps over a frog of its own class, so the frog itself is not in there
+                if ((table.over()[(word << 6) + Long.numberOfTrailingZeros(bits)] & greens) == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * get the classes that have frogs
+     * @param green the green bitboard
+     * @param words amount of words of the bitboard
+     * @param red cell of the red frog, -1 to leave it out
+     * @param table the tables of the board
+     * @return a bit per class with frogs
+     */
+    private static int classes(long[] green, int words, int red, Tables table) {
+        int present = red == -1 ? 0 : 1 << table.classes()[red];
+        for (int word = 0; word < words && present != 0xF; word++) {
+            for (long bits = green[word]; bits != 0; bits &= bits - 1) {
+                present |= 1 << table.classes()[(word << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return present;
+    }
+
+    /**
+     * checks if the green frogs of a class can only be jumped over from classes that have no frogs
+     * @param green the green bitboard
+     * @param words amount of words of the bitboard
+     * @param red cell of the red frog, -1 if there is none
+     * @param table the tables of the board
+     * @return true if there is such a class
+     */
+    private static boolean isClassDead(long[] green, int words, int red, Tables table) {
+        int present = classes(green, words, red, table);
+        int greens = classes(green, words, -1, table);
+        for (int c = 0; c < 4; c++) {
+            if ((greens & 1 << c) != 0 && (table.jumpers()[c] & present) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * checks if the frogs fall apart into groups that can never meet
+     * @param green the green bitboard
+     * @param words amount of words of the bitboard
+     * @param red cell of the red frog, -1 if there is none
+     * @param board the board
+     * @return true if there is more than one group
+     */
+    private static boolean isIsolated(long[] green, int words, int red, HoppersBoard board) {
+        int greens = 0;
+        for (int word = 0; word < words; word++) {
+            greens += Long.bitCount(green[word]);
+        }
+        // frogs closer than this may still meet in the jumps that are left
+        int reach = 2 + 4 * (greens - 1);
+        if (greens == 0 || reach >= Math.max(board.getRow(), board.getColumn()) - 1) {
+            return false;
+        }
+        int frogs = greens + (red == -1 ? 0 : 1);
+        int[] rows = new int[frogs];
+        int[] cols = new int[frogs];
+        int count = 0;
+        for (int word = 0; word < words; word++) {
+            for (long bits = green[word]; bits != 0; bits &= bits - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                rows[count] = board.rowOf(cell);
+                cols[count++] = board.colOf(cell);
+            }
+        }
+        if (red != -1) {
+            rows[count] = board.rowOf(red);
+            cols[count] = board.colOf(red);
+        }
+        // grow the group of the first frog, the frogs before size are in it
+        int[] order = new int[frogs];
+        for (int i = 0; i < frogs; i++) {
+            order[i] = i;
+        }
+        int size = 1;
+        for (int next = 0; next < size; next++) {
+            int a = order[next];
+            for (int i = size; i < frogs; i++) {
+                int b = order[i];
+                if (Math.max(Math.abs(rows[a] - rows[b]), Math.abs(cols[a] - cols[b])) <= reach) {
+                    order[i] = order[size];
+                    order[size++] = b;
+                }
+            }
+        }
+        return size < frogs;
+    }
+
+    /**
+     * get the rules that are checked
+     * @return the rules
+     */
+    public Set<Rule> getRules() {
+        return rules.clone();
+    }
+
+    /**
+     * get amount of configs checked so far
+     * @return amount of configs
+     */
+    public long getChecked() {
+        return checked.sum();
+    }
+
+    /**
+     * get amount of configs a rule pruned so far, a config only counts for the first rule
+     * that pruned it
+     * @param rule the rule
+     * @return amount of configs
+     */
+    public long getPruned(Rule rule) {
+        return pruned[rule.ordinal()].sum();
+    }
+
+    /**
+     * a summary of what was pruned
+     * @return the numbers on one line
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("checked " + getChecked());
+        for (Rule rule : rules) {
+            summary.append(", ").append(rule.name().toLowerCase()).append(' ').append(getPruned(rule));
+        }
+        return summary.toString();
+    }
+}
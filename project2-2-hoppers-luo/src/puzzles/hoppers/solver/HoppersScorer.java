@@ -0,0 +1,79 @@
+package puzzles.hoppers.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Scorer;
+import puzzles.hoppers.model.HoppersBoard;
+import puzzles.hoppers.model.HoppersConfig;
+
+/**
+ * scores hoppers configs for the beam search by how many green frogs are left and how much
+ * the frogs can still move. every green frog has to be jumped over once, so the amount of green
+ * frogs left is how far a config is from a solution, it ranks configs of different depths.
+ * configs of the same depth are ranked by their mobility: the jumps that can be made now, and
+ * the green frogs no frog can jump over now, which are the ones that tend to be left behind.
+ * @author Jonathan Luo
+ */
+public class HoppersScorer implements Scorer {
+    /** the weight of a green frog left, more than the mobility terms can make up for */
+    private static final double GREEN = 1000;
+    /** the weight of a green frog that can't be jumped now */
+    private static final double STUCK = 4;
+    /** the weight of a jump that can be made now */
+    private static final double JUMP = 1;
+
+    /**
+     * score a hoppers config
+     * @param config a hoppers config that is not a solution
+     * @return the score, lower is closer to a solution
+     */
+    @Override
+    public double score(Configuration config) {
+        HoppersConfig hoppers = (HoppersConfig) config;
+        HoppersBoard board = hoppers.getHoppersBoard();
+        // read in place, every config of every beam is scored
+        long[] green = hoppers.getGreen();
+        int red = hoppers.getRed();
+        long[] jumpable = board.newBitboard();
+        int greens = 0;
+        int jumps = 0;
+        for (long word : green) {
+            greens += Long.bitCount(word);
+        }
+        // the jumps of every frog, the green ones and the red one
+        for (int word = 0; word < green.length; word++) {
+            for (long bits = green[word]; bits != 0; bits &= bits - 1) {
+                jumps += jumps(board, green, red, word << 6 | Long.numberOfTrailingZeros(bits), jumpable);
+            }
+        }
+        if (red != -1) {
+            jumps += jumps(board, green, red, red, jumpable);
+        }
+        int stuck = greens;
+        for (long word : jumpable) {
+            stuck -= Long.bitCount(word);
+        }
+        return GREEN * greens + STUCK * stuck - JUMP * jumps;
+    }
+
+    /**
+     * count the jumps a frog can make now and mark the green frogs it can jump over
+     * @param board the board
+     * @param green bitboard of the green frogs
+     * @param red cell of the red frog
+     * @param from cell of the frog
+     * @param jumpable bitboard the green frogs that can be jumped over are set in
+     * @return amount of jumps
+     */
+    private static int jumps(HoppersBoard board, long[] green, int red, int from, long[] jumpable) {
+        int jumps = 0;
+        for (int jump = board.firstJump(from); jump < board.lastJump(from); jump++) {
+            int to = board.landing(jump);
+            int over = board.jumped(jump);
+            if (HoppersBoard.get(green, over) && !HoppersBoard.get(green, to) && to != red) {
+                jumps++;
+                HoppersBoard.set(jumpable, over);
+            }
+        }
+        return jumps;
+    }
+}
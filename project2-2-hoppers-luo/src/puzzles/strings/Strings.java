@@ -1,14 +1,25 @@
 package puzzles.strings;
 
 import puzzles.common.solver.Configuration;
-import puzzles.common.solver.Solver;
+import puzzles.common.solver.PuzzleSolver;
+import puzzles.common.solver.SolverOptions;
 
 import java.util.List;
 
 public class Strings {
     public static void main(String[] args) {
+        String usage = "Usage: java Strings " + SolverOptions.USAGE + " start finish";
+        SolverOptions options;
+        try {
+            options = SolverOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(usage);
+            return;
+        }
+        args = options.getArgs().toArray(new String[0]);
         if (args.length < 2) {
-            System.out.println(("Usage: java Strings start finish"));
+            System.out.println(usage);
         } else {
             // get information from the program arguments
             String start = args[0];
@@ -17,7 +28,7 @@ public class Strings {
             StringsConfig stringsConfigStart = new StringsConfig(start,end);
             StringsConfig stringsConfigEnd = new StringsConfig(end,end);
             // solve and create path
-            Solver solver = new Solver(stringsConfigStart);
+            PuzzleSolver solver = options.solve(stringsConfigStart);
             List<Configuration> path = solver.constructPath(stringsConfigStart,stringsConfigEnd);
             // print out the results and steps
             System.out.println("Start: " + args[0] + ", End: " + args[1]);
@@ -32,6 +43,7 @@ public class Strings {
                     System.out.println("Step " + i + ": " + path.get(i));
                 }
             }
+            options.printCount(stringsConfigStart);
 
         }
     }
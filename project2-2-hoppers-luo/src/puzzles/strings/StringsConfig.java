@@ -7,6 +7,10 @@ import java.util.LinkedList;
 import java.util.List;
 
 public class StringsConfig implements Configuration {
+    /** bits each letter takes in the code of a config */
+    private static final int LETTER_BITS = 5;
+    /** the longest string that can be packed into a long */
+    private static final int MAX_ENCODED_LENGTH = 63 / LETTER_BITS;
     /** the starting string */
     private final String start;
     /** the end string */
@@ -96,6 +100,52 @@ public class StringsConfig implements Configuration {
         return start.hashCode() + end.hashCode();
     }
 
+    /**
+     * a strings config can be packed into a long if it is short and only has the letters
+     * A to Z, its neighbors then never leave A to Z either
+     * @return true if the config fits into a long
+     */
+    @Override
+    public boolean isEncodable() {
+        if (startCh.length > MAX_ENCODED_LENGTH) {
+            return false;
+        }
+        for (char ch : startCh) {
+            if (ch < 'A' || ch > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * pack the config into a long, each letter takes 5 bits with the first letter lowest
+     * @return the code
+     */
+    @Override
+    public long encode() {
+        long code = 0;
+        for (int i = startCh.length - 1; i >= 0; i--) {
+            code = code << LETTER_BITS | (startCh[i] - 'A');
+        }
+        return code;
+    }
+
+    /**
+     * unpack a code made by {@link #encode()}, the string has as many letters as this one
+     * @param code the code
+     * @return a strings config with the same end
+     */
+    @Override
+    public Configuration decode(long code) {
+        char[] letters = new char[startCh.length];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('A' + (code & ((1 << LETTER_BITS) - 1)));
+            code >>>= LETTER_BITS;
+        }
+        return new StringsConfig(new String(letters), end);
+    }
+
     /**
      * the string representation of the configuration
      * @return a string